@@ -0,0 +1,320 @@
+package org.tastefuljava.jsonia.processor;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import org.tastefuljava.jsonia.processor.JSonCodecProcessor.Property;
+
+/**
+ * Writes the source of the codec of a class. The objects are accessed
+ * through the erasure of the class, and the types of the properties are
+ * those of its members seen from there: the type arguments given to the
+ * superclasses are substituted, and the members of a generic class are
+ * erased, so that the values can be cast to the erasure of these types.
+ */
+class CodecWriter {
+    private static final String CODEC
+            = "org.tastefuljava.jsonia.props.ClassCodec";
+    private static final String PROPERTY
+            = "org.tastefuljava.jsonia.props.PropertyDef";
+    private static final String HANDLER
+            = "org.tastefuljava.jsonia.JSonHandler";
+    private static final String CONSUMER
+            = "java.util.function.Consumer<Object>";
+
+    private final PrintWriter out;
+    private final String pkg;
+    private final String name;
+    private final String beanType;
+    private final boolean instantiable;
+    private final List<Property> props;
+    private final Types types;
+
+    CodecWriter(PrintWriter out, String pkg, String name, TypeElement type,
+            boolean instantiable, Collection<Property> props, Types types) {
+        this.out = out;
+        this.pkg = pkg;
+        this.name = name;
+        this.beanType = types.erasure(type.asType()).toString();
+        this.instantiable = instantiable;
+        this.props = new ArrayList<>(props);
+        this.types = types;
+    }
+
+    void write() {
+        if (!pkg.isEmpty()) {
+            out.println("package " + pkg + ";");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Generated by the jsonia annotation processor for "
+                + beanType + ".");
+        out.println(" */");
+        out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        out.println("public final class " + name + " extends " + CODEC
+                + " {");
+        writeConstructor();
+        if (instantiable) {
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object newInstance() {");
+            out.println("        return new " + beanType + "();");
+            out.println("    }");
+        }
+        writeWrite();
+        writeIndexOf();
+        writeGet();
+        writeSet();
+        writeSetPrimitive("setLong", "long", TypeKind.INT, TypeKind.LONG);
+        writeSetPrimitive("setDouble", "double", TypeKind.DOUBLE, null);
+        writeSetPrimitive("setBoolean", "boolean", TypeKind.BOOLEAN, null);
+        out.println("}");
+    }
+
+    private void writeConstructor() {
+        out.println("    public " + name + "() {");
+        out.println("        super(new " + PROPERTY + "[] {");
+        for (int i = 0; i < props.size(); ++i) {
+            Property prop = props.get(i);
+            out.println("            property(\"" + prop.name + "\", "
+                    + erasure(prop.type) + ".class, " + prop.isReadable()
+                    + ", " + prop.isWritable() + ")"
+                    + (i < props.size() - 1 ? "," : ""));
+        }
+        out.println("        });");
+        out.println("    }");
+    }
+
+    /**
+     * Straight-line code that reads each property, and sends it to the
+     * handler with its name as a constant, as JSonVisitor would.
+     */
+    private void writeWrite() {
+        out.println();
+        out.println("    @Override");
+        out.println("    public void write(Object object, " + HANDLER
+                + " handler,");
+        out.println("            " + CONSUMER + " visitor) {");
+        out.println("        " + beanType + " bean = (" + beanType
+                + ")object;");
+        for (Property prop: props) {
+            if (!prop.isReadable()) {
+                continue;
+            }
+            String field = "\"" + prop.name + "\"";
+            String value = read(prop);
+            String handle = handle(prop.type);
+            if (handle != null) {
+                call(prop.getter, "handler.startField(" + field + ");",
+                        "handler." + handle + "(" + value + ");",
+                        "handler.endField(" + field + ");");
+                continue;
+            }
+            String type = isString(prop.type) ? "String" : "Object";
+            out.println("        {");
+            out.println("            " + type + " value;");
+            call("    ", prop.getter, "value = " + value + ";");
+            out.println("            if (value != null) {");
+            out.println("                handler.startField(" + field
+                    + ");");
+            out.println("                "
+                    + (type.equals("String") ? "handler.handleString(value);"
+                            : "visitor.accept(value);"));
+            out.println("                handler.endField(" + field + ");");
+            out.println("            }");
+            out.println("        }");
+        }
+        out.println("    }");
+    }
+
+    private void writeIndexOf() {
+        out.println();
+        out.println("    @Override");
+        out.println("    public int indexOf(String name) {");
+        out.println("        switch (name) {");
+        for (int i = 0; i < props.size(); ++i) {
+            out.println("            case \"" + props.get(i).name
+                    + "\": return " + i + ";");
+        }
+        out.println("            default: return -1;");
+        out.println("        }");
+        out.println("    }");
+    }
+
+    private void writeGet() {
+        out.println();
+        out.println("    @Override");
+        out.println("    public Object get(Object object, int index) {");
+        out.println("        " + beanType + " bean = (" + beanType
+                + ")object;");
+        out.println("        switch (index) {");
+        for (int i = 0; i < props.size(); ++i) {
+            Property prop = props.get(i);
+            if (prop.isReadable()) {
+                out.println("            case " + i + ":");
+                call("        ", prop.getter, "return " + read(prop) + ";");
+            }
+        }
+        out.println("            default:");
+        out.println("                throw new IllegalArgumentException("
+                + "\"Cannot read property \" + index);");
+        out.println("        }");
+        out.println("    }");
+    }
+
+    private void writeSet() {
+        out.println();
+        out.println("    @Override");
+        out.println("    public void set(Object object, int index,"
+                + " Object value) {");
+        out.println("        " + beanType + " bean = (" + beanType
+                + ")object;");
+        out.println("        switch (index) {");
+        for (int i = 0; i < props.size(); ++i) {
+            Property prop = props.get(i);
+            if (prop.isWritable()) {
+                out.println("            case " + i + ":");
+                if (prop.type.getKind().isPrimitive()) {
+                    // rejected with an IllegalArgumentException, as with
+                    // reflection
+                    out.println("                if (value == null) {");
+                    out.println("                    throw new"
+                            + " IllegalArgumentException(");
+                    out.println("                            \"Cannot set "
+                            + prop.type + " property " + prop.name
+                            + " to null\");");
+                    out.println("                }");
+                }
+                String type = boxed(prop.type);
+                call("        ", prop.setter, assign(prop,
+                        type.equals("java.lang.Object")
+                                ? "value" : "(" + type + ")value"));
+                out.println("                break;");
+            }
+        }
+        out.println("            default:");
+        out.println("                throw new IllegalArgumentException("
+                + "\"Cannot set property \" + index);");
+        out.println("        }");
+        out.println("    }");
+    }
+
+    /**
+     * Writes setLong, setDouble or setBoolean for the properties of the
+     * given primitive types.
+     */
+    private void writeSetPrimitive(String method, String type,
+            TypeKind kind1, TypeKind kind2) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < props.size(); ++i) {
+            Property prop = props.get(i);
+            TypeKind kind = prop.type.getKind();
+            if ((kind == kind1 || kind == kind2) && prop.isWritable()) {
+                indexes.add(i);
+            }
+        }
+        if (indexes.isEmpty()) {
+            return;
+        }
+        out.println();
+        out.println("    @Override");
+        out.println("    public void " + method
+                + "(Object object, int index, " + type + " value) {");
+        out.println("        " + beanType + " bean = (" + beanType
+                + ")object;");
+        out.println("        switch (index) {");
+        for (int i: indexes) {
+            Property prop = props.get(i);
+            out.println("            case " + i + ":");
+            call("        ", prop.setter, assign(prop,
+                    prop.type.getKind() == TypeKind.INT
+                            ? "(int)value" : "value"));
+            out.println("                break;");
+        }
+        out.println("            default:");
+        out.println("                super." + method
+                + "(object, index, value);");
+        out.println("        }");
+        out.println("    }");
+    }
+
+    private static String read(Property prop) {
+        return prop.field != null ? "bean." + prop.name
+                : "bean." + prop.getter.getSimpleName() + "()";
+    }
+
+    private static String assign(Property prop, String value) {
+        return prop.field != null ? "bean." + prop.name + " = " + value + ";"
+                : "bean." + prop.setter.getSimpleName() + "(" + value + ");";
+    }
+
+    /**
+     * Returns the method of JSonHandler that handles a primitive type
+     * other than char, or null.
+     */
+    private static String handle(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "handleBoolean";
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return "handleLong";
+            case FLOAT:
+            case DOUBLE:
+                return "handleDouble";
+            default:
+                return null;
+        }
+    }
+
+    private void call(ExecutableElement method, String... statements) {
+        call("", method, statements);
+    }
+
+    /**
+     * Writes statements that call an accessor; the checked exceptions it
+     * throws are reported as IllegalArgumentExceptions, as with reflection.
+     */
+    private void call(String indent, ExecutableElement method,
+            String... statements) {
+        indent += "        ";
+        boolean wrap = method != null && !method.getThrownTypes().isEmpty();
+        if (wrap) {
+            out.println(indent + "try {");
+        }
+        for (String statement: statements) {
+            out.println(indent + (wrap ? "    " : "") + statement);
+        }
+        if (wrap) {
+            out.println(indent + "} catch (RuntimeException e) {");
+            out.println(indent + "    throw e;");
+            out.println(indent + "} catch (Exception e) {");
+            out.println(indent + "    throw new IllegalArgumentException("
+                    + "e.getMessage(), e);");
+            out.println(indent + "}");
+        }
+    }
+
+    private String erasure(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    private String boxed(TypeMirror type) {
+        return type.getKind().isPrimitive()
+                ? types.boxedClass(types.getPrimitiveType(type.getKind()))
+                        .getQualifiedName().toString()
+                : erasure(type);
+    }
+
+    private boolean isString(TypeMirror type) {
+        return erasure(type).equals("java.lang.String");
+    }
+}
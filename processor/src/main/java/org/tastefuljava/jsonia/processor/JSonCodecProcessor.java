@@ -0,0 +1,314 @@
+package org.tastefuljava.jsonia.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import org.tastefuljava.jsonia.JSonCodec;
+import org.tastefuljava.jsonia.props.ClassCodec;
+
+/**
+ * Generates a {@link ClassCodec} for each class annotated with
+ * {@link JSonCodec}. The properties are those that
+ * {@link org.tastefuljava.jsonia.props.ClassDef} would find at run time: the
+ * fields of the class and of its superclasses, replaced by the properties
+ * of the public getters and setters of the same name. The codec is in the
+ * package of the class, so that it can access the fields that are not
+ * private; private fields that have no accessor are reported.
+ */
+public class JSonCodecProcessor extends AbstractProcessor {
+    private static final String ANNOTATION = JSonCodec.class.getName();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment env) {
+        TypeElement annotation = processingEnv.getElementUtils()
+                .getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element elm: env.getElementsAnnotatedWith(annotation)) {
+            TypeElement type = (TypeElement)elm;
+            if (check(type)) {
+                generate(type);
+            }
+        }
+        return true;
+    }
+
+    private boolean check(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS) {
+            error(type, "@JSonCodec can only be put on classes");
+            return false;
+        }
+        for (Element elm = type; elm instanceof TypeElement;
+                elm = elm.getEnclosingElement()) {
+            NestingKind nesting = ((TypeElement)elm).getNestingKind();
+            Set<Modifier> mods = elm.getModifiers();
+            if (mods.contains(Modifier.PRIVATE)) {
+                error(type, "A class with a codec cannot be private");
+                return false;
+            } else if (nesting == NestingKind.LOCAL
+                    || nesting == NestingKind.ANONYMOUS) {
+                error(type, "A class with a codec cannot be local");
+                return false;
+            } else if (nesting == NestingKind.MEMBER
+                    && !mods.contains(Modifier.STATIC)
+                    && elm.getEnclosingElement().getKind()
+                            == ElementKind.CLASS) {
+                error(type, "A class with a codec cannot be an inner class");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String pkg = processingEnv.getElementUtils().getPackageOf(type)
+                .getQualifiedName().toString();
+        String name = ClassCodec.compiledName(processingEnv.getElementUtils()
+                .getBinaryName(type).toString());
+        Map<String,Property> props = properties(type);
+        for (Property prop: props.values()) {
+            if (prop.field != null && !prop.isReadable()
+                    && !prop.isWritable()) {
+                warning(prop.field, "Field " + prop.name
+                        + " cannot be accessed by the codec and has no"
+                        + " accessors: it is skipped");
+            }
+        }
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(name, type).openWriter())) {
+            new CodecWriter(out, pkg, name.substring(name.lastIndexOf('.')
+                    + 1), type, hasConstructor(type), props.values(),
+                    processingEnv.getTypeUtils()).write();
+        } catch (IOException ex) {
+            error(type, "Cannot write the codec: " + ex.getMessage());
+        }
+    }
+
+    private Map<String,Property> properties(TypeElement type) {
+        Map<String,Property> props = new LinkedHashMap<>();
+        String pkg = processingEnv.getElementUtils().getPackageOf(type)
+                .getQualifiedName().toString();
+        // the types of the members, as the codec sees them
+        DeclaredType bean = (DeclaredType)erasure(type.asType());
+        for (TypeElement cl = type; cl != null; cl = superclass(cl)) {
+            for (VariableElement field: ElementFilter.fieldsIn(
+                    cl.getEnclosedElements())) {
+                String name = field.getSimpleName().toString();
+                Set<Modifier> mods = field.getModifiers();
+                if (!props.containsKey(name)
+                        && !mods.contains(Modifier.STATIC)
+                        && !mods.contains(Modifier.TRANSIENT)) {
+                    props.put(name, new Property(name,
+                            memberType(bean, field), field,
+                            isAccessible(field, pkg), null, null));
+                }
+            }
+        }
+        Map<String,ExecutableElement> getters = new LinkedHashMap<>();
+        Map<String,ExecutableElement> setters = new LinkedHashMap<>();
+        for (ExecutableElement method: ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)
+                    || method.getModifiers().contains(Modifier.STATIC)
+                    || isObject(method.getEnclosingElement())) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            List<? extends VariableElement> params = method.getParameters();
+            TypeMirror result = method.getReturnType();
+            String propName = null;
+            if (params.isEmpty() && result.getKind() != TypeKind.VOID) {
+                if (name.startsWith("get") && name.length() > 3) {
+                    propName = decapitalize(name.substring(3));
+                } else if (name.startsWith("is") && name.length() > 2
+                        && isBoolean(result)) {
+                    propName = decapitalize(name.substring(2));
+                }
+                if (propName != null && !getters.containsKey(propName)) {
+                    getters.put(propName, method);
+                }
+            } else if (params.size() == 1 && name.startsWith("set")
+                    && name.length() > 3) {
+                propName = decapitalize(name.substring(3));
+                if (!setters.containsKey(propName)) {
+                    setters.put(propName, method);
+                }
+            }
+        }
+        for (Map.Entry<String,ExecutableElement> e: getters.entrySet()) {
+            String name = e.getKey();
+            ExecutableElement getter = e.getValue();
+            TypeMirror propType = memberType(bean, getter).getReturnType();
+            ExecutableElement setter = setters.get(name);
+            if (setter != null && !processingEnv.getTypeUtils().isSameType(
+                    erasure(parameterType(bean, setter)),
+                    erasure(propType))) {
+                // the values are converted to the type of the getter
+                setter = null;
+            }
+            props.put(name, new Property(name, propType, null, false,
+                    getter, setter));
+        }
+        for (Map.Entry<String,ExecutableElement> e: setters.entrySet()) {
+            String name = e.getKey();
+            if (!getters.containsKey(name)) {
+                ExecutableElement setter = e.getValue();
+                props.put(name, new Property(name,
+                        parameterType(bean, setter), null, false, null,
+                        setter));
+            }
+        }
+        return props;
+    }
+
+    /**
+     * Returns the type of a member seen from the bean type: the type
+     * arguments of the superclasses are substituted, and the members of a
+     * raw type are erased.
+     */
+    private TypeMirror memberType(DeclaredType bean, VariableElement field) {
+        return processingEnv.getTypeUtils().asMemberOf(bean, field);
+    }
+
+    private ExecutableType memberType(DeclaredType bean,
+            ExecutableElement method) {
+        return (ExecutableType)processingEnv.getTypeUtils()
+                .asMemberOf(bean, method);
+    }
+
+    private TypeMirror parameterType(DeclaredType bean,
+            ExecutableElement setter) {
+        return memberType(bean, setter).getParameterTypes().get(0);
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror sup = type.getSuperclass();
+        if (sup.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement result = (TypeElement)((DeclaredType)sup).asElement();
+        return isObject(result) ? null : result;
+    }
+
+    /**
+     * Tells whether the generated codec, in the given package, can access
+     * a field.
+     */
+    private boolean isAccessible(VariableElement field, String pkg) {
+        Set<Modifier> mods = field.getModifiers();
+        return mods.contains(Modifier.PUBLIC)
+                || !mods.contains(Modifier.PRIVATE)
+                        && processingEnv.getElementUtils()
+                                .getPackageOf(field).getQualifiedName()
+                                .contentEquals(pkg);
+    }
+
+    private static boolean hasConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement cons: ElementFilter.constructorsIn(
+                type.getEnclosedElements())) {
+            if (cons.getParameters().isEmpty()
+                    && !cons.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private static boolean isObject(Element elm) {
+        return elm instanceof TypeElement && ((TypeElement)elm)
+                .getQualifiedName().contentEquals("java.lang.Object");
+    }
+
+    private static boolean isBoolean(TypeMirror type) {
+        return type.getKind() == TypeKind.BOOLEAN
+                || type.toString().equals("java.lang.Boolean");
+    }
+
+    private static String decapitalize(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element elm, String message) {
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR, message, elm);
+    }
+
+    private void warning(Element elm, String message) {
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.WARNING, message, elm);
+    }
+
+    /**
+     * A property, accessed through a field that the codec can access, or
+     * through a getter and a setter, either of which can be null.
+     */
+    static class Property {
+        final String name;
+        final TypeMirror type;
+        final VariableElement field;
+        final boolean accessible;
+        final ExecutableElement getter;
+        final ExecutableElement setter;
+
+        Property(String name, TypeMirror type, VariableElement field,
+                boolean accessible, ExecutableElement getter,
+                ExecutableElement setter) {
+            this.name = name;
+            this.type = type;
+            this.field = field;
+            this.accessible = accessible;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        boolean isReadable() {
+            return field != null ? accessible : getter != null;
+        }
+
+        boolean isWritable() {
+            return field != null
+                    ? accessible && !field.getModifiers().contains(
+                            Modifier.FINAL)
+                    : setter != null;
+        }
+    }
+}
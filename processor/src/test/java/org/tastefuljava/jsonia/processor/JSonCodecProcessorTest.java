@@ -0,0 +1,173 @@
+package org.tastefuljava.jsonia.processor;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import org.tastefuljava.jsonia.JSonCodec;
+import org.tastefuljava.jsonia.props.ClassCodec;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The codecs of the classes of this test are generated when the test is
+ * compiled.
+ */
+public class JSonCodecProcessorTest {
+    @Test
+    public void testCodecs() {
+        assertEquals(JSonCodecProcessorTest.class.getName()
+                + "_Order_JSonCodec",
+                ClassCodec.forClass(Order.class).getClass().getName());
+        assertEquals(JSonCodecProcessorTest.class.getName()
+                + "_Line_JSonCodec",
+                ClassCodec.forClass(Line.class).getClass().getName());
+        assertNull(ClassCodec.forClass(Product.class));
+        assertEquals(JSonCodecProcessorTest.class.getName()
+                + "_Sub_JSonCodec",
+                ClassCodec.forClass(Sub.class).getClass().getName());
+    }
+
+    @Test
+    public void testGenericSuperclass() throws IOException {
+        String json = "{\"value\":\"a\",\"other\":\"b\"}";
+        Sub sub = JSon.read(json, Sub.class);
+        assertEquals("a", sub.value);
+        assertEquals("b", sub.getOther());
+        assertEquals(json, JSon.stringify(sub, false));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Order order = new Order();
+        order.number = 12;
+        order.customer = "me";
+        order.paid = true;
+        order.total = 12.5;
+        order.tags = new String[] {"a", "b"};
+        order.setSecret(7);
+        Line line = new Line();
+        line.setQuantity(3);
+        line.setDescription("three");
+        line.setProduct(new Product());
+        line.getProduct().name = "thing";
+        order.lines = new Line[] {line};
+        String json = JSon.stringify(order, false);
+        assertEquals("{\"number\":12,\"customer\":\"me\",\"paid\":true,"
+                + "\"total\":12.5,\"tags\":[\"a\",\"b\"],\"lines\":"
+                + "[{\"quantity\":3,\"description\":\"three\","
+                + "\"product\":{\"name\":\"thing\"}}],\"secret\":7}",
+                json);
+        Order copy = JSon.read(json, Order.class);
+        assertEquals(12, copy.number);
+        assertEquals("me", copy.customer);
+        assertTrue(copy.paid);
+        assertEquals(12.5, copy.total, 0);
+        assertArrayEquals(new String[] {"a", "b"}, copy.tags);
+        assertEquals(7, copy.getSecret());
+        assertEquals("thing", copy.lines[0].getProduct().name);
+        assertEquals(json, JSon.stringify(copy, false));
+    }
+
+    @Test
+    public void testErrors() {
+        ClassCodec codec = ClassCodec.forClass(Line.class);
+        try {
+            codec.set(new Line(), codec.indexOf("failing"), "x");
+            fail("No error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(-1, codec.indexOf("unknown"));
+        for (Class<?> clazz: new Class<?>[] {Order.class, Line.class}) {
+            codec = ClassCodec.forClass(clazz);
+            Object bean = codec.newInstance();
+            int index = codec.indexOf(
+                    clazz == Order.class ? "number" : "quantity");
+            try {
+                codec.set(bean, index, null);
+                fail("No error");
+            } catch (IllegalArgumentException e) {
+                // as with reflection
+            }
+        }
+    }
+
+    @JSonCodec
+    public static class Order {
+        int number;
+        String customer;
+        boolean paid;
+        double total;
+        String[] tags;
+        Line[] lines;
+        private int secret;
+        transient int ignored;
+
+        public int getSecret() {
+            return secret;
+        }
+
+        public void setSecret(int secret) {
+            this.secret = secret;
+        }
+    }
+
+    public static class Base<T> {
+        public T value;
+        private T other;
+
+        public T getOther() {
+            return other;
+        }
+
+        public void setOther(T other) {
+            this.other = other;
+        }
+    }
+
+    @JSonCodec
+    public static class Sub extends Base<String> {
+    }
+
+    @JSonCodec
+    public static class Line {
+        private int quantity;
+        private String description;
+        private Product product;
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public void setProduct(Product product) {
+            this.product = product;
+        }
+
+        public void setFailing(String value) throws Exception {
+            throw new Exception("failed");
+        }
+    }
+
+    public static class Product {
+        String name;
+    }
+}
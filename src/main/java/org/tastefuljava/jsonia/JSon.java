@@ -2,80 +2,298 @@ package org.tastefuljava.jsonia;
 
 import org.tastefuljava.jsonia.producer.JSonVisitor;
 import org.tastefuljava.jsonia.producer.JSonParser;
+import org.tastefuljava.jsonia.producer.JSonReader;
 import org.tastefuljava.jsonia.handler.JSonBuilder;
 import org.tastefuljava.jsonia.handler.JSonFormatter;
 import org.tastefuljava.jsonia.handler.AbstractJSonBuilder;
 import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import org.tastefuljava.jsonia.handler.JSonTreeBuilder;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import org.tastefuljava.jsonia.tree.LazyDocument;
 import org.tastefuljava.jsonia.util.InvocationLogger;
+import org.tastefuljava.jsonia.util.SymbolTable;
 
 public class JSon {
     public static <T> T read(File file, String encoding, Class<T> clazz)
             throws IOException {
-        try (InputStream in = new FileInputStream(file)) {
-            return read(in, encoding, clazz);
-        }
+        Pool pool = Pool.acquire();
+        return clazz.cast(
+                readObject(file, encoding, pool, pool.builder(clazz)));
     }
 
     public static <T> T read(InputStream in, String encoding, Class<T> clazz)
             throws IOException {
-        try (Reader reader = new InputStreamReader(in, encoding)) {
-            return read(reader, clazz);
-        }
+        Pool pool = Pool.acquire();
+        return clazz.cast(readObject(in, encoding, pool, pool.builder(clazz)));
     }
 
     public static <T> T read(Reader in, Class<T> clazz)
             throws IOException {
-        return clazz.cast(readObject(in, new JSonBuilder(clazz)));
+        Pool pool = Pool.acquire();
+        return clazz.cast(readObject(in, pool, pool.builder(clazz)));
     }
 
     public static <T> T read(String json, Class<T> clazz) throws IOException {
-        return read(new StringReader(json), clazz);
+        Pool pool = Pool.acquire();
+        return clazz.cast(readObject(json, pool, pool.builder(clazz)));
+    }
+
+    public static <T> T read(byte[] json, Class<T> clazz) throws IOException {
+        Pool pool = Pool.acquire();
+        return clazz.cast(readObject(json, pool, pool.builder(clazz)));
     }
 
     public static Object read(File file, String encoding)
             throws IOException {
-        try (InputStream in = new FileInputStream(file)) {
-            return read(in, encoding);
-        }
+        Pool pool = Pool.acquire();
+        return readObject(file, encoding, pool, pool.generic());
     }
 
     public static Object read(InputStream in, String encoding)
             throws IOException {
-        try (Reader reader = new InputStreamReader(in, encoding)) {
-            return read(reader);
-        }
+        Pool pool = Pool.acquire();
+        return readObject(in, encoding, pool, pool.generic());
     }
 
     public static Object read(Reader in) throws IOException {
-        return readObject(in, new JSonGenericBuilder());
+        Pool pool = Pool.acquire();
+        return readObject(in, pool, pool.generic());
     }
 
     public static Object read(String json) throws IOException {
-        return read(new StringReader(json));
+        Pool pool = Pool.acquire();
+        return readObject(json, pool, pool.generic());
+    }
+
+    public static Object read(byte[] json) throws IOException {
+        Pool pool = Pool.acquire();
+        return readObject(json, pool, pool.generic());
+    }
+
+    /**
+     * Reads a generic value into a compact tree of read-only Maps and Lists;
+     * see {@link JSonTreeBuilder}.
+     */
+    public static Object readTree(InputStream in, String encoding)
+            throws IOException {
+        Pool pool = Pool.acquire();
+        return readObject(in, encoding, pool, pool.tree());
+    }
+
+    public static Object readTree(Reader in) throws IOException {
+        Pool pool = Pool.acquire();
+        return readObject(in, pool, pool.tree());
+    }
+
+    public static Object readTree(String json) throws IOException {
+        Pool pool = Pool.acquire();
+        return readObject(json, pool, pool.tree());
+    }
+
+    public static Object readTree(byte[] json) throws IOException {
+        Pool pool = Pool.acquire();
+        return readObject(json, pool, pool.tree());
+    }
+
+    /**
+     * Reads a generic value that is decoded on demand; see
+     * {@link LazyDocument}.
+     */
+    public static Object readLazy(String json) throws IOException {
+        return LazyDocument.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link #readLazy(String)} for UTF-8 input; the array must not
+     * be changed afterwards.
+     */
+    public static Object readLazy(byte[] json) throws IOException {
+        return LazyDocument.read(json);
+    }
+
+    /**
+     * Reads a stream of concatenated or newline-delimited values.
+     */
+    public static <T> JSonRecords<T> records(Reader in, Class<T> clazz) {
+        JSonBuilder builder = new JSonBuilder(clazz);
+        return new JSonRecords<>(
+                new JSonParser(in, wrap(builder)), builder, clazz, in);
+    }
+
+    /**
+     * Reads a stream of concatenated or newline-delimited values in UTF-8.
+     */
+    public static <T> JSonRecords<T> records(InputStream in, Class<T> clazz) {
+        JSonBuilder builder = new JSonBuilder(clazz);
+        return new JSonRecords<>(
+                new JSonParser(in, wrap(builder)), builder, clazz, in);
+    }
+
+    public static JSonRecords<Object> records(Reader in) {
+        JSonGenericBuilder builder = new JSonGenericBuilder();
+        return new JSonRecords<>(new JSonParser(in, wrap(builder)), builder,
+                Object.class, in);
+    }
+
+    public static JSonRecords<Object> records(InputStream in) {
+        JSonGenericBuilder builder = new JSonGenericBuilder();
+        return new JSonRecords<>(new JSonParser(in, wrap(builder)), builder,
+                Object.class, in);
+    }
+
+    /**
+     * Reads the elements of an array one at a time, binding each of them
+     * only when it is requested. The array is the top-level value, or the
+     * value at the given path of field names; see {@link JSonElements}.
+     */
+    public static <T> JSonElements<T> stream(Reader in, Class<T> clazz,
+            String... path) {
+        return new JSonElements<>(new JSonReader(in), elementBuilder(clazz),
+                clazz, in, path);
+    }
+
+    /**
+     * Same as {@link #stream(Reader, Class, String...)} for UTF-8 input.
+     */
+    public static <T> JSonElements<T> stream(InputStream in, Class<T> clazz,
+            String... path) {
+        return new JSonElements<>(new JSonReader(in), elementBuilder(clazz),
+                clazz, in, path);
+    }
+
+    /**
+     * Passes the elements of an array to the consumer as soon as each of
+     * them is bound; the input is closed at the end.
+     */
+    public static <T> void forEach(Reader in, Class<T> clazz,
+            Consumer<? super T> consumer, String... path)
+            throws IOException {
+        forEach(stream(in, clazz, path), consumer);
     }
 
-    private static Object readObject(Reader in, AbstractJSonBuilder handler)
+    public static <T> void forEach(InputStream in, Class<T> clazz,
+            Consumer<? super T> consumer, String... path)
             throws IOException {
-        parse(in, handler);
-        return handler.getTop();
+        forEach(stream(in, clazz, path), consumer);
+    }
+
+    private static <T> void forEach(JSonElements<T> elements,
+            Consumer<? super T> consumer) throws IOException {
+        try (JSonElements<T> e = elements) {
+            e.forEachRemaining(consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static AbstractJSonBuilder elementBuilder(Class<?> clazz) {
+        return clazz == Object.class
+                ? new JSonGenericBuilder() : new JSonBuilder(clazz);
+    }
+
+    /**
+     * Reads a newline-delimited UTF-8 file on the threads of the common
+     * fork-join pool, passing the values to the consumer in file order. Use
+     * a {@link JSonParallelReader} directly for more control.
+     */
+    public static <T> void readParallel(File file, Class<T> clazz,
+            Consumer<? super T> consumer) throws IOException {
+        new JSonParallelReader<>(clazz).read(file, consumer);
+    }
+
+    /**
+     * Reads a UTF-8 file that holds a single array, binding its elements on
+     * the threads of the common fork-join pool. The elements are returned
+     * in file order.
+     */
+    public static <T> List<T> readArrayParallel(File file, Class<T> clazz)
+            throws IOException {
+        return new JSonParallelReader<>(clazz).readArray(file);
+    }
+
+    private static Object readObject(File file, String encoding, Pool pool,
+            AbstractJSonBuilder handler) throws IOException {
+        try {
+            parse(file, encoding, handler);
+            return handler.getTop();
+        } finally {
+            pool.release();
+        }
+    }
+
+    private static Object readObject(InputStream in, String encoding,
+            Pool pool, AbstractJSonBuilder handler) throws IOException {
+        try {
+            parse(in, encoding, handler);
+            return handler.getTop();
+        } finally {
+            pool.release();
+        }
+    }
+
+    private static Object readObject(Reader in, Pool pool,
+            AbstractJSonBuilder handler) throws IOException {
+        return readObject(new JSonParser(in, wrap(handler)), pool, handler);
+    }
+
+    private static Object readObject(String json, Pool pool,
+            AbstractJSonBuilder handler) throws IOException {
+        return readObject(new JSonParser(json, wrap(handler)), pool, handler);
+    }
+
+    private static Object readObject(byte[] json, Pool pool,
+            AbstractJSonBuilder handler) throws IOException {
+        return readObject(new JSonParser(json, wrap(handler)), pool, handler);
+    }
+
+    private static Object readObject(JSonParser parser, Pool pool,
+            AbstractJSonBuilder handler) throws IOException {
+        try {
+            parser.setSymbolTable(pool.symbols);
+            parser.parse();
+            return handler.getTop();
+        } finally {
+            pool.release();
+        }
+    }
+
+    public static void parse(File file, String encoding,
+            JSonHandler handler) throws IOException {
+        JSonParser.parse(file, encoding, wrap(handler));
+    }
+
+    public static void parse(InputStream in, String encoding,
+            JSonHandler handler) throws IOException {
+        JSonParser.parse(in, encoding, wrap(handler));
     }
 
     public static void parse(Reader in, JSonHandler handler)
             throws IOException {
-        JSonHandler jsonHandler = InvocationLogger.wrap(
-                Level.FINE, handler, JSonHandler.class);
-        JSonParser.parse(in, jsonHandler);
+        JSonParser.parse(in, wrap(handler));
+    }
+
+    public static void parse(String json, JSonHandler handler)
+            throws IOException {
+        JSonParser.parse(json, wrap(handler));
+    }
+
+    private static JSonHandler wrap(JSonHandler handler) {
+        if (handler instanceof JSonCharHandler) {
+            return InvocationLogger.wrap(Level.FINE,
+                    (JSonCharHandler)handler, JSonCharHandler.class);
+        }
+        return InvocationLogger.wrap(Level.FINE, handler, JSonHandler.class);
     }
 
     public static void write(Object object, PrintWriter out, boolean format) {
@@ -95,12 +313,107 @@ public class JSon {
     }
 
     public static String stringify(Object object, boolean format) {
-        StringWriter writer = new StringWriter();
-        write(object, writer, format);
-        return writer.toString();
+        Pool pool = Pool.acquire();
+        try {
+            visit(object, pool.formatter(format));
+            return pool.text.toString();
+        } finally {
+            pool.release();
+        }
     }
 
     public static void visit(Object object, JSonHandler handler) {
         new JSonVisitor(handler).visit(object);
     }
+
+    /**
+     * The builders, the symbol table and the formatter kept by each thread
+     * from one call to the next, so that reading or writing a small
+     * document allocates little more than the result. A call made while the
+     * pool of the thread is in use, from a setter for instance, gets a new
+     * pool.
+     */
+    private static final class Pool {
+        private static final ThreadLocal<Pool> POOLS
+                = ThreadLocal.withInitial(Pool::new);
+        private static final int MAX_TEXT_SIZE = 65536;
+
+        private final SymbolTable symbols = new SymbolTable();
+        private boolean busy;
+        private AbstractJSonBuilder used;
+        private JSonBuilder builder;
+        private JSonGenericBuilder generic;
+        private JSonTreeBuilder tree;
+        private StringWriter text;
+        private PrintWriter out;
+        private JSonFormatter formatter;
+
+        private static Pool acquire() {
+            Pool pool = POOLS.get();
+            if (pool.busy) {
+                return new Pool();
+            }
+            pool.busy = true;
+            return pool;
+        }
+
+        private JSonBuilder builder(Class<?> type) {
+            if (builder == null) {
+                builder = new JSonBuilder(type);
+            } else {
+                builder.reset(type);
+            }
+            used = builder;
+            return builder;
+        }
+
+        private JSonGenericBuilder generic() {
+            if (generic == null) {
+                generic = new JSonGenericBuilder();
+            }
+            used = generic;
+            return generic;
+        }
+
+        private JSonTreeBuilder tree() {
+            if (tree == null) {
+                tree = new JSonTreeBuilder();
+            }
+            used = tree;
+            return tree;
+        }
+
+        private JSonFormatter formatter(boolean format) {
+            if (text == null) {
+                text = new StringWriter();
+                out = new PrintWriter(text);
+            }
+            if (formatter == null) {
+                formatter = new JSonFormatter(out, format);
+            } else {
+                formatter.reset(out, format);
+            }
+            return formatter;
+        }
+
+        /**
+         * Drops the references to the last result, and the text buffer if
+         * it has grown large.
+         */
+        private void release() {
+            if (used != null) {
+                used.reset();
+                used = null;
+            }
+            if (text != null) {
+                if (text.getBuffer().capacity() > MAX_TEXT_SIZE) {
+                    text = null;
+                    out = null;
+                } else {
+                    text.getBuffer().setLength(0);
+                }
+            }
+            busy = false;
+        }
+    }
 }
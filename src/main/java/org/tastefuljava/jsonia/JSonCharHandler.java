@@ -0,0 +1,28 @@
+package org.tastefuljava.jsonia;
+
+/**
+ * A handler that receives field names and strings as CharSequences. When
+ * they come from a parser, the sequences are views over its buffers that
+ * are only valid for the duration of the call: a handler that needs to
+ * keep one must copy it.
+ */
+public interface JSonCharHandler extends JSonHandler {
+    void startField(CharSequence name);
+    void endField(CharSequence name);
+    void handleString(CharSequence value);
+
+    @Override
+    default void startField(String name) {
+        startField((CharSequence)name);
+    }
+
+    @Override
+    default void endField(String name) {
+        endField((CharSequence)name);
+    }
+
+    @Override
+    default void handleString(String value) {
+        handleString((CharSequence)value);
+    }
+}
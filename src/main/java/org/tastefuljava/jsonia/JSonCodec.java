@@ -0,0 +1,20 @@
+package org.tastefuljava.jsonia;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the annotation processor of the jsonia-processor
+ * module generates a codec at compile time. The codec is found when the
+ * class is first read or written, and the class is then never introspected.
+ *
+ * @see org.tastefuljava.jsonia.props.ClassCodec#forClass(Class)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JSonCodec {
+}
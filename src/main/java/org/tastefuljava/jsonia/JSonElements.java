@@ -0,0 +1,150 @@
+package org.tastefuljava.jsonia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.tastefuljava.jsonia.handler.AbstractJSonBuilder;
+import org.tastefuljava.jsonia.producer.JSonReader;
+import org.tastefuljava.jsonia.producer.JSonReader.Token;
+
+/**
+ * The elements of an array, bound one at a time as they are read, so that
+ * an array of any size can be processed in constant memory. The array is
+ * either the top-level value, or the value found by following a path of
+ * field names from the top-level object; a missing or null field gives no
+ * elements. Nothing is read past the end of the array.
+ */
+public class JSonElements<T> implements Iterator<T>, Closeable {
+    private final JSonReader reader;
+    private final AbstractJSonBuilder builder;
+    private final Class<T> clazz;
+    private final Closeable input;
+    private final String[] path;
+    private boolean started;
+    private boolean ready;
+    private boolean done;
+    private T next;
+
+    JSonElements(JSonReader reader, AbstractJSonBuilder builder,
+            Class<T> clazz, Closeable input, String[] path) {
+        this.reader = reader;
+        this.builder = builder;
+        this.clazz = clazz;
+        this.input = input;
+        this.path = path;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            fetch();
+            ready = true;
+        }
+        return !done;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                this, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        ready = true;
+        reader.close();
+        if (input != null) {
+            input.close();
+        }
+    }
+
+    private void fetch() {
+        if (done) {
+            return;
+        }
+        try {
+            if (!started) {
+                started = true;
+                if (!enter()) {
+                    finish();
+                    return;
+                }
+            }
+            if (reader.nextToken() == Token.END_ARRAY) {
+                finish();
+                return;
+            }
+            reader.readValue(builder);
+            next = clazz.cast(builder.getTop());
+            builder.reset();
+        } catch (IOException e) {
+            builder.reset();
+            finish();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            builder.reset();
+            finish();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads up to the start of the array; returns false when a field of the
+     * path is missing or null.
+     */
+    private boolean enter() throws IOException {
+        Token token = reader.nextToken();
+        for (String name: path) {
+            if (token == Token.NULL) {
+                return false;
+            } else if (token != Token.START_OBJECT) {
+                throw new IOException("Object expected for field " + name);
+            }
+            while ((token = reader.nextToken()) != Token.END_OBJECT) {
+                if (name.contentEquals(reader.getCharSequence())) {
+                    break;
+                }
+                reader.skipValue();
+            }
+            if (token == Token.END_OBJECT) {
+                return false;
+            }
+            token = reader.nextToken();
+        }
+        if (token == Token.NULL) {
+            return false;
+        } else if (token != Token.START_ARRAY) {
+            throw new IOException("Array expected");
+        }
+        return true;
+    }
+
+    private void finish() {
+        done = true;
+        reader.close();
+    }
+}
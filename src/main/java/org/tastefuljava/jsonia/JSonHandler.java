@@ -1,5 +1,7 @@
 package org.tastefuljava.jsonia;
 
+import org.tastefuljava.jsonia.util.Numbers;
+
 public interface JSonHandler {
     void startObject();
     void endObject();
@@ -13,4 +15,35 @@ public interface JSonHandler {
     void handleBoolean(boolean value);
     void handleNumber(Number value);
     void handleString(String value);
+
+    /**
+     * Handles an integer that fits in a long. The default implementation
+     * boxes it as an Integer or a Long and calls {@link #handleNumber}.
+     */
+    default void handleLong(long value) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            handleNumber(value);
+        } else {
+            handleNumber((int)value);
+        }
+    }
+
+    /**
+     * Handles a number with an exponent. The default implementation boxes
+     * it as a Double and calls {@link #handleNumber}.
+     */
+    default void handleDouble(double value) {
+        handleNumber(value);
+    }
+
+    /**
+     * Handles a decimal, or an integer too large for a long, given by its
+     * text. The sequence may be a view into the parser's buffer, valid
+     * only for the duration of the call. The default implementation
+     * converts it to a BigDecimal or a BigInteger and calls
+     * {@link #handleNumber}.
+     */
+    default void handleDecimal(CharSequence value) {
+        handleNumber(Numbers.toNumber(value));
+    }
 }
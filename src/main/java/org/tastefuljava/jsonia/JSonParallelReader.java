@@ -0,0 +1,525 @@
+package org.tastefuljava.jsonia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import org.tastefuljava.jsonia.handler.AbstractJSonBuilder;
+import org.tastefuljava.jsonia.handler.JSonBuilder;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import org.tastefuljava.jsonia.producer.JSonParser;
+import org.tastefuljava.jsonia.producer.StructuralIndex;
+
+/**
+ * Reads newline-delimited UTF-8 values, or the elements of a single array,
+ * on several threads. The input is split into batches at line boundaries,
+ * or between the elements; each batch is parsed by a task of its own, and
+ * the values are passed to the consumer on the calling thread, either in
+ * input order or batch by batch as they become ready.
+ */
+public class JSonParallelReader<T> {
+    public static final int DEFAULT_BATCH_SIZE = 1024*1024;
+    private static final int CHUNK_SIZE = 64*1024;
+
+    private final Class<T> clazz;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelism;
+    private Executor executor;
+    private boolean ordered = true;
+    private ObjLongConsumer<Exception> errorHandler;
+
+    /**
+     * Creates a reader that builds values of the given class, or generic
+     * values when the class is Object.
+     */
+    public JSonParallelReader(Class<T> clazz) {
+        this.clazz = clazz;
+    }
+
+    /**
+     * Sets the approximate size in bytes of a batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of threads of the fork-join pool used to parse the
+     * batches. By default, the common pool is used.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs the tasks on the given executor instead of a fork-join pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * When false, the values of a batch are delivered as soon as the batch
+     * is parsed, regardless of the order of the batches. The default is
+     * true.
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Enables error recovery, as in {@link JSonRecords}: the handler is
+     * called on the calling thread with the offset of each failed record.
+     */
+    public void setErrorHandler(ObjLongConsumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public void read(File file, Consumer<? super T> consumer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(), StandardOpenOption.READ)) {
+            read(new LineBatches(new ChannelSource(channel)), consumer);
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of the buffer; its position is not changed.
+     */
+    public void read(ByteBuffer data, Consumer<? super T> consumer)
+            throws IOException {
+        read(new LineBatches(new BufferSource(data)), consumer);
+    }
+
+    /**
+     * Reads a file that holds a single array, passing its elements to the
+     * consumer. The batches are split at the commas that separate the
+     * elements; errors are not recovered from.
+     */
+    public void readArray(File file, Consumer<? super T> consumer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(), StandardOpenOption.READ)) {
+            read(new ArrayBatches(new ChannelSource(channel)), consumer);
+        }
+    }
+
+    public void readArray(ByteBuffer data, Consumer<? super T> consumer)
+            throws IOException {
+        read(new ArrayBatches(new BufferSource(data)), consumer);
+    }
+
+    /**
+     * Returns the elements of the array held by the file, in file order
+     * unless the reader is unordered.
+     */
+    public List<T> readArray(File file) throws IOException {
+        List<T> result = new ArrayList<>();
+        readArray(file, result::add);
+        return result;
+    }
+
+    public List<T> readArray(ByteBuffer data) throws IOException {
+        List<T> result = new ArrayList<>();
+        readArray(data, result::add);
+        return result;
+    }
+
+    private void read(Batches batches, Consumer<? super T> consumer)
+            throws IOException {
+        ForkJoinPool pool = null;
+        Executor exec = executor;
+        int threads = parallelism;
+        if (exec == null) {
+            pool = parallelism > 0
+                    ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+            exec = pool;
+            threads = pool.getParallelism();
+        } else if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        CompletionService<Batch<T>> service
+                = new ExecutorCompletionService<>(exec);
+        Deque<Future<Batch<T>>> pending = new ArrayDeque<>();
+        try {
+            // a few batches per thread keep the threads busy
+            int window = 2*threads;
+            boolean more = true;
+            while (true) {
+                while (more && pending.size() < window) {
+                    more = batches.next();
+                    if (more) {
+                        pending.add(service.submit(batches.task()));
+                    }
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                Future<Batch<T>> future = ordered
+                        ? pending.peekFirst() : service.take();
+                pending.remove(future);
+                deliver(future.get(), consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // fork-join pools wrap the checked exceptions of their tasks
+            for (Throwable t = cause; t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    throw (IOException)t;
+                }
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (Future<?> future: pending) {
+                future.cancel(false);
+            }
+            if (pool != null && pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void deliver(Batch<T> batch, Consumer<? super T> consumer) {
+        for (int i = 0; i < batch.errors.size(); ++i) {
+            errorHandler.accept(
+                    batch.errors.get(i), batch.errorOffsets.get(i));
+        }
+        for (T value: batch.values) {
+            consumer.accept(value);
+        }
+    }
+
+    private AbstractJSonBuilder newBuilder() {
+        return clazz == Object.class
+                ? new JSonGenericBuilder() : new JSonBuilder(clazz);
+    }
+
+    private Callable<Batch<T>> recordTask(long start, ByteBuffer data) {
+        return () -> {
+            Batch<T> batch = new Batch<>();
+            AbstractJSonBuilder builder = newBuilder();
+            JSonParser parser = new JSonParser(data, builder);
+            try {
+                while (true) {
+                    try {
+                        if (!parser.parseNext()) {
+                            break;
+                        }
+                        batch.values.add(clazz.cast(builder.getTop()));
+                    } catch (IOException | RuntimeException e) {
+                        if (errorHandler == null) {
+                            throw e;
+                        }
+                        builder.reset();
+                        batch.errors.add(e);
+                        batch.errorOffsets.add(
+                                start + parser.getRecordOffset());
+                        parser.recover();
+                    }
+                }
+            } finally {
+                parser.close();
+            }
+            return batch;
+        };
+    }
+
+    /**
+     * The elements of a batch of an array; a batch that follows a comma
+     * cannot be empty.
+     */
+    private Callable<Batch<T>> elementTask(ByteBuffer data, boolean first) {
+        return () -> {
+            Batch<T> batch = new Batch<>();
+            AbstractJSonBuilder builder = newBuilder();
+            JSonParser parser = new JSonParser(data, builder);
+            try {
+                while (parser.parseNextElement()) {
+                    batch.values.add(clazz.cast(builder.getTop()));
+                }
+            } finally {
+                parser.close();
+            }
+            if (!first && batch.values.isEmpty()) {
+                throw new IOException("Value expected");
+            }
+            return batch;
+        };
+    }
+
+    private static class Batch<T> {
+        private final List<T> values = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+        private final List<Long> errorOffsets = new ArrayList<>();
+    }
+
+    private abstract class Batches {
+        long start;
+        long end;
+
+        /**
+         * Moves to the next batch; returns false when there is none.
+         */
+        abstract boolean next() throws IOException;
+
+        abstract Callable<Batch<T>> task() throws IOException;
+    }
+
+    private class LineBatches extends Batches {
+        private final Source source;
+        private final long size;
+
+        LineBatches(Source source) throws IOException {
+            this.source = source;
+            this.size = source.size();
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (end >= size) {
+                return false;
+            }
+            start = end;
+            end = source.nextLine(Math.min(size, start + batchSize));
+            return true;
+        }
+
+        @Override
+        Callable<Batch<T>> task() throws IOException {
+            return recordTask(start, source.slice(start, end));
+        }
+    }
+
+    /**
+     * Splits the content of an array at the commas that follow its
+     * elements, keeping track of the depth as it goes. The input is read
+     * once, by chunks, ahead of the parsing tasks; each chunk is indexed
+     * with a {@link StructuralIndex}, which takes care of the strings.
+     */
+    private class ArrayBatches extends Batches {
+        private final Source source;
+        private final byte[] buf = new byte[CHUNK_SIZE];
+        private long bufStart;
+        private int bufLength;
+        private StructuralIndex index;
+        private int next;
+        private long pos;
+        private int depth;
+        private boolean first = true;
+        private boolean done;
+
+        ArrayBatches(Source source) throws IOException {
+            this.source = source;
+            if (peek() != '[') {
+                throw new IOException("'[' expected");
+            }
+            pos = bufStart + index.offset(next++) + 1;
+            depth = 1;
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (done) {
+                return false;
+            }
+            start = pos;
+            long limit = start + batchSize;
+            int d = depth;
+            while (true) {
+                int c = peek();
+                if (c < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+                long offset = bufStart + index.offset(next++);
+                if (c == '[' || c == '{') {
+                    ++d;
+                } else if (c == ']' || c == '}') {
+                    if (--d == 0) {
+                        if (c != ']') {
+                            throw new IOException("']' expected");
+                        }
+                        end = offset;
+                        done = true;
+                        if (peek() >= 0) {
+                            throw new IOException("End of file expected");
+                        }
+                        return true;
+                    }
+                } else if (c == ',' && d == 1 && offset >= limit) {
+                    end = offset;
+                    pos = end + 1;
+                    depth = d;
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        Callable<Batch<T>> task() throws IOException {
+            Callable<Batch<T>> task
+                    = elementTask(source.slice(start, end), first);
+            first = false;
+            return task;
+        }
+
+        /**
+         * Returns the next structural character, or -1 at the end of the
+         * input.
+         */
+        private int peek() throws IOException {
+            while (index == null || next >= index.size()) {
+                long offset = index == null ? 0 : bufStart + bufLength;
+                int length = source.read(offset, buf);
+                if (length <= 0) {
+                    return -1;
+                }
+                // the chunks are full, but for the last one
+                bufStart = offset;
+                bufLength = length;
+                index = StructuralIndex.buildChunk(buf, 0, length, index);
+                next = 0;
+            }
+            return index.byteAt(next);
+        }
+    }
+
+    private static interface Source {
+        long size() throws IOException;
+
+        /**
+         * Reads the bytes at the given offset into buf; returns the number of
+         * bytes read, or -1 at the end of the input.
+         */
+        int read(long offset, byte[] buf) throws IOException;
+
+        /**
+         * Returns the offset that follows the first newline at or after the
+         * given offset, or the size when there is none.
+         */
+        long nextLine(long offset) throws IOException;
+
+        ByteBuffer slice(long start, long end) throws IOException;
+    }
+
+    private static class BufferSource implements Source {
+        private final ByteBuffer data;
+
+        BufferSource(ByteBuffer data) {
+            this.data = data.slice();
+        }
+
+        @Override
+        public long size() {
+            return data.limit();
+        }
+
+        @Override
+        public long nextLine(long offset) {
+            int limit = data.limit();
+            for (int i = (int)offset; i < limit; ++i) {
+                if (data.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return limit;
+        }
+
+        @Override
+        public int read(long offset, byte[] buf) {
+            int count = (int)Math.min(buf.length, data.limit() - offset);
+            if (count <= 0) {
+                return -1;
+            }
+            ByteBuffer src = data.duplicate();
+            src.position((int)offset);
+            src.get(buf, 0, count);
+            return count;
+        }
+
+        @Override
+        public ByteBuffer slice(long start, long end) {
+            ByteBuffer result = data.duplicate();
+            result.position((int)start).limit((int)end);
+            return result;
+        }
+    }
+
+    private static class ChannelSource implements Source {
+        private static final int SCAN_SIZE = 4096;
+
+        private final FileChannel channel;
+        private final ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+
+        ChannelSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public long nextLine(long offset) throws IOException {
+            long pos = offset;
+            while (true) {
+                scan.clear();
+                int count = channel.read(scan, pos);
+                if (count <= 0) {
+                    return channel.size();
+                }
+                for (int i = 0; i < count; ++i) {
+                    if (scan.get(i) == '\n') {
+                        return pos + i + 1;
+                    }
+                }
+                pos += count;
+            }
+        }
+
+        @Override
+        public int read(long offset, byte[] buf) throws IOException {
+            ByteBuffer dst = ByteBuffer.wrap(buf);
+            while (dst.hasRemaining()) {
+                int count = channel.read(dst, offset + dst.position());
+                if (count < 0) {
+                    break;
+                }
+            }
+            return dst.position() > 0 ? dst.position() : -1;
+        }
+
+        @Override
+        public ByteBuffer slice(long start, long end) throws IOException {
+            return channel.map(
+                    FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+    }
+}
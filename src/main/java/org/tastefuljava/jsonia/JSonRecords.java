@@ -0,0 +1,130 @@
+package org.tastefuljava.jsonia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.tastefuljava.jsonia.handler.AbstractJSonBuilder;
+import org.tastefuljava.jsonia.producer.JSonParser;
+
+/**
+ * The values of a stream of concatenated or newline-delimited JSon values.
+ * The same parser, buffer and builder are used for all the records.
+ */
+public class JSonRecords<T> implements Iterator<T>, Closeable {
+    private final JSonParser parser;
+    private final AbstractJSonBuilder builder;
+    private final Class<T> clazz;
+    private final Closeable input;
+    private ObjLongConsumer<Exception> errorHandler;
+    private boolean ready;
+    private boolean done;
+    private T next;
+    private long nextOffset = -1;
+    private long offset = -1;
+
+    JSonRecords(JSonParser parser, AbstractJSonBuilder builder,
+            Class<T> clazz, Closeable input) {
+        this.parser = parser;
+        this.builder = builder;
+        this.clazz = clazz;
+        this.input = input;
+    }
+
+    /**
+     * Enables error recovery: a record that cannot be parsed or built is
+     * reported to the handler with its offset, and reading resumes at the
+     * next line. Without a handler, the first error ends the iteration.
+     */
+    public void setErrorHandler(ObjLongConsumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Returns the offset in the input of the record last returned by
+     * {@link #next()}: in chars for a Reader, in bytes for a UTF-8 stream.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            fetch();
+            ready = true;
+        }
+        return !done;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        offset = nextOffset;
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                this, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        ready = true;
+        parser.close();
+        if (input != null) {
+            input.close();
+        }
+    }
+
+    private void fetch() {
+        while (!done) {
+            try {
+                if (!parser.parseNext()) {
+                    done = true;
+                } else {
+                    next = clazz.cast(builder.getTop());
+                    nextOffset = parser.getRecordOffset();
+                }
+                return;
+            } catch (IOException | RuntimeException e) {
+                builder.reset();
+                if (errorHandler == null) {
+                    done = true;
+                    parser.close();
+                    if (e instanceof IOException) {
+                        throw new UncheckedIOException((IOException)e);
+                    }
+                    throw (RuntimeException)e;
+                }
+                errorHandler.accept(e, parser.getRecordOffset());
+                try {
+                    parser.recover();
+                } catch (IOException ex) {
+                    done = true;
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        }
+    }
+}
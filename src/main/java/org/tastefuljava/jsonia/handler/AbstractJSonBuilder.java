@@ -8,4 +8,11 @@ public abstract class AbstractJSonBuilder implements JSonHandler {
     public Object getTop() {
         return top;
     }
+
+    /**
+     * Makes the builder ready for a new value, even after a failed parse.
+     */
+    public void reset() {
+        top = null;
+    }
 }
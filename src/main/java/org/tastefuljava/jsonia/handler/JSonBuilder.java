@@ -4,7 +4,9 @@ import org.tastefuljava.jsonia.util.Dates;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
@@ -12,66 +14,140 @@ import java.util.List;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.tastefuljava.jsonia.props.ClassCodec;
 import org.tastefuljava.jsonia.props.ClassDef;
 import org.tastefuljava.jsonia.props.PropertyDef;
+import org.tastefuljava.jsonia.util.LazyNumber;
+import org.tastefuljava.jsonia.util.Numbers;
 
 public class JSonBuilder extends AbstractJSonBuilder {
     private static final Logger LOG
             = Logger.getLogger(JSonBuilder.class.getName());
 
-    private final List<Object> stack = new ArrayList<>();
+    private Class<?> rootType;
     private Class<?> type;
-    private final List<Class<?>> typeStack = new ArrayList<>();
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private PrimitiveBuffer buffer;
+    private boolean stored;
 
     public JSonBuilder(Class<?> type) {
+        this.rootType = type;
         this.type = type;
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        while (depth > 0) {
+            frames[--depth].clear();
+        }
+        buffer = null;
+        stored = false;
+        type = rootType;
+    }
+
+    /**
+     * Makes the builder ready for a value of another type. The frames are
+     * kept, so that a builder can be reused without allocations.
+     */
+    public void reset(Class<?> type) {
+        rootType = type;
+        reset();
+    }
+
     @Override
     public void startObject() {
-        try {
-            stack.add(0, type.getConstructor().newInstance());
-        } catch (InstantiationException | IllegalAccessException
-                | NoSuchMethodException | SecurityException
-                | IllegalArgumentException | InvocationTargetException ex) {
-            LOG.log(Level.SEVERE, "Error instanciating object", ex);
-            throw new RuntimeException(ex.getMessage());
+        // frames at the same depth usually hold objects of the same class
+        Frame frame = depth < frames.length ? frames[depth] : null;
+        ClassDef<?> cdef;
+        ClassCodec codec;
+        if (frame != null && frame.beanType == type) {
+            cdef = frame.cdef;
+            codec = frame.codec;
+        } else {
+            // classes with a codec are not introspected
+            codec = ClassCodec.forClass(type);
+            cdef = codec == null ? ClassDef.forClass(type) : null;
         }
+        Object object = codec == null ? null : codec.newInstance();
+        if (object == null) {
+            try {
+                object = type.getConstructor().newInstance();
+            } catch (InstantiationException | IllegalAccessException
+                    | NoSuchMethodException | SecurityException
+                    | IllegalArgumentException
+                    | InvocationTargetException ex) {
+                LOG.log(Level.SEVERE, "Error instanciating object", ex);
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+        frame = push(object);
+        frame.beanType = type;
+        frame.cdef = cdef;
+        frame.codec = codec;
     }
 
     @Override
     public void endObject() {
-        top = stack.remove(0);
+        top = pop();
     }
 
     @Override
     public void startField(String name) {
-        typeStack.add(0, type);
-        Object object = stack.get(0);
-        ClassDef cdef = ClassDef.forClass(object.getClass());
-        PropertyDef prop = cdef.getProperty(name);
+        Frame frame = frames[depth-1];
+        PropertyDef prop;
+        if (frame.codec != null) {
+            int index = frame.codec.indexOf(name);
+            frame.index = index;
+            prop = index < 0 ? null : frame.codec.getProperty(index);
+        } else {
+            prop = frame.cdef.getProperty(name);
+        }
+        frame.prop = prop;
         type = prop == null ? Object.class : prop.getType();
     }
 
     @Override
     public void endField(String name) {
-        type = typeStack.remove(0);
-        Object object = stack.get(0);
-        ClassDef cdef = ClassDef.forClass(object.getClass());
-        PropertyDef prop = cdef.getProperty(name);
-        if (prop != null && prop.canSet()) {
-            prop.set(object, convert(top, prop.getType()));
+        Frame frame = frames[depth-1];
+        type = frame.type;
+        PropertyDef prop = frame.prop;
+        if (stored) {
+            // the value is a primitive, already set
+            stored = false;
+        } else if (prop != null && prop.canSet()) {
+            Object value = convert(top, prop.getType());
+            if (frame.codec != null) {
+                frame.codec.set(frame.object, frame.index, value);
+            } else {
+                prop.set(frame.object, value);
+            }
         }
+        frame.prop = null;
     }
 
     @Override
     public void startArray() {
-        stack.add(0, new ArrayList<>());
+        Class<?> elmType = type.getComponentType();
+        if (elmType == int.class) {
+            push(new IntBuffer());
+        } else if (elmType == long.class) {
+            push(new LongBuffer());
+        } else if (elmType == double.class) {
+            push(new DoubleBuffer());
+        } else {
+            push(new ArrayList<>());
+        }
     }
 
     @Override
     public void endArray() {
-        top = stack.remove(0);
+        top = pop();
+        if (top instanceof PrimitiveBuffer) {
+            top = ((PrimitiveBuffer)top).toArray();
+            return;
+        }
         List<?> list = (List<?>) top;
         if (type.isArray()) {
             int length = list.size();
@@ -92,7 +168,11 @@ public class JSonBuilder extends AbstractJSonBuilder {
 
     @Override
     public void startElement() {
-        typeStack.add(0, type);
+        Object array = frames[depth-1].object;
+        if (array instanceof PrimitiveBuffer) {
+            // numbers are added as they are parsed
+            buffer = (PrimitiveBuffer)array;
+        }
         if (type.isArray()) {
             type = type.getComponentType();
         } else if (Collection.class.isAssignableFrom(type)) {
@@ -102,10 +182,19 @@ public class JSonBuilder extends AbstractJSonBuilder {
 
     @Override
     public void endElement() {
-        type = typeStack.remove(0);
-        @SuppressWarnings(value = "unchecked")
-        List<Object> array = (List<Object>) stack.get(0);
-        array.add(top);
+        Frame frame = frames[depth-1];
+        type = frame.type;
+        if (frame.object instanceof PrimitiveBuffer) {
+            if (buffer != null) {
+                // the element was not a number
+                buffer.add(convert(top, type.getComponentType()));
+                buffer = null;
+            }
+        } else {
+            @SuppressWarnings(value = "unchecked")
+            List<Object> array = (List<Object>) frame.object;
+            array.add(top);
+        }
     }
 
     @Override
@@ -115,7 +204,17 @@ public class JSonBuilder extends AbstractJSonBuilder {
 
     @Override
     public void handleBoolean(boolean value) {
-        top = value;
+        if (isPrimitiveField(PropertyDef.Kind.BOOLEAN)) {
+            Frame frame = frames[depth-1];
+            if (frame.codec != null) {
+                frame.codec.setBoolean(frame.object, frame.index, value);
+            } else {
+                frame.prop.setBoolean(frame.object, value);
+            }
+            stored = true;
+        } else {
+            top = value;
+        }
     }
 
     @Override
@@ -123,16 +222,328 @@ public class JSonBuilder extends AbstractJSonBuilder {
         top = value;
     }
 
+    @Override
+    public void handleLong(long value) {
+        if (inBuffer()) {
+            buffer.addLong(value);
+            buffer = null;
+            return;
+        }
+        PropertyDef prop = primitiveField();
+        if (prop != null) {
+            Frame frame = frames[depth-1];
+            Object object = frame.object;
+            stored = true;
+            switch (prop.getKind()) {
+                case INT:
+                    if (frame.codec != null) {
+                        frame.codec.setLong(object, frame.index, value);
+                    } else {
+                        prop.setInt(object, (int)value);
+                    }
+                    return;
+                case LONG:
+                    if (frame.codec != null) {
+                        frame.codec.setLong(object, frame.index, value);
+                    } else {
+                        prop.setLong(object, value);
+                    }
+                    return;
+                case DOUBLE:
+                    setDouble(value);
+                    return;
+                default:
+                    stored = false;
+                    break;
+            }
+        }
+        Class<?> target = boxed(type);
+        if (target == Long.class) {
+            top = value;
+        } else if (target == Integer.class) {
+            top = (int)value;
+        } else if (target == Double.class) {
+            top = (double)value;
+        } else if (target == Float.class) {
+            top = (float)value;
+        } else if (target == Short.class) {
+            top = (short)value;
+        } else if (target == Byte.class) {
+            top = (byte)value;
+        } else if (target == BigDecimal.class) {
+            top = BigDecimal.valueOf(value);
+        } else if (target == BigInteger.class) {
+            top = BigInteger.valueOf(value);
+        } else {
+            super.handleLong(value);
+        }
+    }
+
+    @Override
+    public void handleDouble(double value) {
+        if (inBuffer()) {
+            buffer.addDouble(value);
+            buffer = null;
+            return;
+        }
+        if (isPrimitiveField(PropertyDef.Kind.DOUBLE)) {
+            setDouble(value);
+            stored = true;
+            return;
+        }
+        Class<?> target = boxed(type);
+        if (target == Double.class) {
+            top = value;
+        } else if (target == Float.class) {
+            top = (float)value;
+        } else {
+            super.handleDouble(value);
+        }
+    }
+
+    @Override
+    public void handleDecimal(CharSequence value) {
+        Class<?> target = boxed(type);
+        if (buffer instanceof DoubleBuffer && inBuffer()) {
+            buffer.addDouble(Numbers.parseDouble(value));
+            buffer = null;
+        } else if (isPrimitiveField(PropertyDef.Kind.DOUBLE)) {
+            setDouble(Numbers.parseDouble(value));
+            stored = true;
+        } else if (target == Double.class) {
+            top = Numbers.parseDouble(value);
+        } else if (target == Float.class) {
+            top = Float.parseFloat(value.toString());
+        } else if (target == BigDecimal.class) {
+            top = new BigDecimal(value.toString());
+        } else {
+            super.handleDecimal(value);
+        }
+    }
+
     @Override
     public void handleString(String value) {
         top = value;
     }
 
+    /**
+     * Returns the property of the current field when the value can be set
+     * directly, without boxing: the property is of a primitive kind, and
+     * the value is not inside an array or an object of the field.
+     */
+    private PropertyDef primitiveField() {
+        if (depth == 0) {
+            return null;
+        }
+        PropertyDef prop = frames[depth-1].prop;
+        return prop != null && prop.getKind() != PropertyDef.Kind.OBJECT
+                && prop.canSet() ? prop : null;
+    }
+
+    /**
+     * Sets the current field, of kind DOUBLE.
+     */
+    private void setDouble(double value) {
+        Frame frame = frames[depth-1];
+        if (frame.codec != null) {
+            frame.codec.setDouble(frame.object, frame.index, value);
+        } else {
+            frame.prop.setDouble(frame.object, value);
+        }
+    }
+
+    private boolean isPrimitiveField(PropertyDef.Kind kind) {
+        PropertyDef prop = primitiveField();
+        return prop != null && prop.getKind() == kind;
+    }
+
+    /**
+     * Tells whether the current value is an element of a primitive array,
+     * rather than part of an element that is not a number.
+     */
+    private boolean inBuffer() {
+        return buffer != null && frames[depth-1].object == buffer;
+    }
+
+    /**
+     * Pushes a frame for an object or an array of the current type. The
+     * frames are reused from one value to the next.
+     */
+    private Frame push(Object object) {
+        if (depth >= frames.length) {
+            Frame[] newFrames = new Frame[2*frames.length];
+            System.arraycopy(frames, 0, newFrames, 0, depth);
+            frames = newFrames;
+        }
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = frames[depth] = new Frame();
+        }
+        ++depth;
+        frame.object = object;
+        frame.type = type;
+        return frame;
+    }
+
+    private Object pop() {
+        Frame frame = frames[--depth];
+        Object object = frame.object;
+        frame.object = null;
+        frame.prop = null;
+        return object;
+    }
+
+    /**
+     * An object or an array being built, with its type, and for an object
+     * its codec if it has one or else its class definition, and the property
+     * of the current field with its index. The class of the last object, its
+     * codec and its class definition are kept when the frame is popped.
+     */
+    private static class Frame {
+        private Object object;
+        private Class<?> type;
+        private Class<?> beanType;
+        private ClassDef<?> cdef;
+        private ClassCodec codec;
+        private PropertyDef prop;
+        private int index;
+
+        private void clear() {
+            object = null;
+            type = null;
+            beanType = null;
+            cdef = null;
+            codec = null;
+            prop = null;
+        }
+    }
+
+    /**
+     * A growable array of primitive values, used instead of a list for
+     * arrays of ints, longs and doubles; it is trimmed once at the end.
+     */
+    private abstract static class PrimitiveBuffer {
+        protected int size;
+
+        abstract void addLong(long value);
+        abstract void addDouble(double value);
+        abstract Object toArray();
+
+        void add(Object value) {
+            if (value == null) {
+                throw new RuntimeException(
+                        "Null element in primitive array");
+            }
+            Number number = (Number)value;
+            if (number instanceof Double || number instanceof Float) {
+                addDouble(number.doubleValue());
+            } else {
+                addLong(number.longValue());
+            }
+        }
+    }
+
+    private static class IntBuffer extends PrimitiveBuffer {
+        private int[] values = new int[16];
+
+        @Override
+        void addLong(long value) {
+            if (size >= values.length) {
+                values = Arrays.copyOf(values, 2*size);
+            }
+            values[size++] = (int)value;
+        }
+
+        @Override
+        void addDouble(double value) {
+            if (size >= values.length) {
+                values = Arrays.copyOf(values, 2*size);
+            }
+            // saturates, where a cast through long would wrap around
+            values[size++] = (int)value;
+        }
+
+        @Override
+        Object toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class LongBuffer extends PrimitiveBuffer {
+        private long[] values = new long[16];
+
+        @Override
+        void addLong(long value) {
+            if (size >= values.length) {
+                values = Arrays.copyOf(values, 2*size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        void addDouble(double value) {
+            addLong((long)value);
+        }
+
+        @Override
+        Object toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class DoubleBuffer extends PrimitiveBuffer {
+        private double[] values = new double[16];
+
+        @Override
+        void addLong(long value) {
+            addDouble(value);
+        }
+
+        @Override
+        void addDouble(double value) {
+            if (size >= values.length) {
+                values = Arrays.copyOf(values, 2*size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        Object toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        } else {
+            return Void.class;
+        }
+    }
+
     private static Object convert(Object value, Class<?> type) {
         if (value == null) {
             return null;
         } else if (type.isAssignableFrom(value.getClass())) {
             return type.cast(value);
+        } else if (boxed(type) == value.getClass()) {
+            return value;
         } else if ((type == boolean.class || type == Boolean.class)
                 && value.getClass() == Boolean.class) {
             return value;
@@ -151,7 +562,13 @@ public class JSonBuilder extends AbstractJSonBuilder {
             } else if (type == double.class || type == Double.class) {
                 return number.doubleValue();
             } else if (type == BigDecimal.class) {
+                if (number instanceof LazyNumber) {
+                    return ((LazyNumber)number).bigDecimalValue();
+                }
                 return BigDecimal.valueOf(number.doubleValue());
+            } else if (type == BigInteger.class
+                    && number instanceof LazyNumber) {
+                return ((LazyNumber)number).bigIntegerValue();
             } else {
                 throw new RuntimeException(
                         "Cannot convert value of type " + type);
@@ -5,14 +5,15 @@ import java.io.PrintWriter;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.JSonCharHandler;
 
-public class JSonFormatter implements JSonHandler, Closeable {
+public class JSonFormatter implements JSonCharHandler, Closeable {
     private static final char HEX[] = "0123456789ABCDEF".toCharArray();
 
     private DecimalFormat decimalFormat;
-    private final PrintWriter out;
-    private final boolean format;
+    private final char[] digits = new char[20];
+    private PrintWriter out;
+    private boolean format;
     private boolean bol;
     private boolean boa;
     private boolean boo;
@@ -28,6 +29,19 @@ public class JSonFormatter implements JSonHandler, Closeable {
                 ? (PrintWriter)writer : new PrintWriter(writer), format);
     }
 
+    /**
+     * Makes the formatter ready to write another value to another writer;
+     * the number format and the buffers are kept.
+     */
+    public void reset(PrintWriter out, boolean format) {
+        this.out = out;
+        this.format = format;
+        bol = false;
+        boa = false;
+        boo = false;
+        level = 0;
+    }
+
     @Override
     public void close() {
         out.close();
@@ -51,7 +65,7 @@ public class JSonFormatter implements JSonHandler, Closeable {
     }
 
     @Override
-    public void startField(String name) {
+    public void startField(CharSequence name) {
         if (!boo) {
             out.print(',');
             println();
@@ -62,7 +76,7 @@ public class JSonFormatter implements JSonHandler, Closeable {
     }
 
     @Override
-    public void endField(String name) {
+    public void endField(CharSequence name) {
         boo = false;
     }
 
@@ -115,10 +129,43 @@ public class JSonFormatter implements JSonHandler, Closeable {
     }
 
     @Override
-    public void handleString(String value) {
+    public void handleLong(long value) {
+        indent();
+        // digits are computed on the negative value to cover Long.MIN_VALUE
+        long n = value < 0 ? value : -value;
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char)('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (value < 0) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    @Override
+    public void handleDouble(double value) {
+        indent();
+        out.print(getDecimalFormat().format(value));
+    }
+
+    @Override
+    public void handleDecimal(CharSequence value) {
+        indent();
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    @Override
+    public void handleString(CharSequence value) {
         indent();
         out.print('"');
-        for (char c: value.toCharArray()) {
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
             switch (c) {
                 case '\\':
                     out.print("\\\\");
@@ -163,15 +210,12 @@ public class JSonFormatter implements JSonHandler, Closeable {
         return decimalFormat;
     }
 
-    private void printHex(int value, int digits) {
-        char chars[] = new char[digits];
-        for (int i = digits; --i >= 0; ) {
-            chars[i] = HEX[value % 16];
+    private void printHex(int value, int count) {
+        for (int i = count; --i >= 0; ) {
+            digits[i] = HEX[value % 16];
             value /= 16;
         }
-        for (char c: chars) {
-            out.print(c);
-        }
+        out.write(digits, 0, count);
     }
 
     private void println() {
@@ -8,6 +8,12 @@ import java.util.Map;
 public class JSonGenericBuilder extends AbstractJSonBuilder {
     private final List<Object> stack = new ArrayList<>();
 
+    @Override
+    public void reset() {
+        super.reset();
+        stack.clear();
+    }
+
     @Override
     public void startObject() {
         stack.add(0, new HashMap<>());
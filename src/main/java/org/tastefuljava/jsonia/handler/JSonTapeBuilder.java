@@ -0,0 +1,264 @@
+package org.tastefuljava.jsonia.handler;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.tastefuljava.jsonia.tree.JSonTape;
+import org.tastefuljava.jsonia.util.LazyNumber;
+
+/**
+ * Writes a document into a {@link JSonTape}, which becomes the top value
+ * once the document is complete. By default, the tape and the string pool
+ * are direct buffers that grow as needed; buffers of a fixed size, for
+ * instance mapped from a file, can be given instead.
+ * <p>
+ * Field names are written once in the string pool, and shared by all the
+ * fields with that name.
+ */
+public class JSonTapeBuilder extends AbstractJSonBuilder {
+    private static final int INITIAL_SIZE = 4096;
+
+    private final boolean growable;
+    private ByteBuffer tape;
+    private ByteBuffer strings;
+    private final Map<String,Integer> names = new HashMap<>();
+    private int[] starts = new int[16];
+    private int[] counts = new int[16];
+    private int depth;
+
+    public JSonTapeBuilder() {
+        this.growable = true;
+        this.tape = allocate(INITIAL_SIZE);
+        this.strings = allocate(INITIAL_SIZE);
+    }
+
+    /**
+     * Writes into the given buffers, from their current positions; a
+     * BufferOverflowException is thrown if they get full.
+     */
+    public JSonTapeBuilder(ByteBuffer tape, ByteBuffer strings) {
+        this.growable = false;
+        this.tape = tape.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.strings = strings.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Makes the builder ready for a new document. Given buffers are reused,
+     * overwriting the previous tape; otherwise, new buffers are allocated.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        if (growable) {
+            tape = allocate(INITIAL_SIZE);
+            strings = allocate(INITIAL_SIZE);
+        } else {
+            tape.clear();
+            strings.clear();
+        }
+        names.clear();
+        depth = 0;
+    }
+
+    @Override
+    public void startObject() {
+        start(JSonTape.START_OBJECT);
+    }
+
+    @Override
+    public void endObject() {
+        end(JSonTape.END_OBJECT);
+    }
+
+    @Override
+    public void startField(String name) {
+        Integer offset = names.get(name);
+        if (offset == null) {
+            offset = text(name);
+            names.put(name, offset);
+        }
+        entry(JSonTape.NAME, 4).putInt(offset);
+    }
+
+    @Override
+    public void endField(String name) {
+        ++counts[depth-1];
+    }
+
+    @Override
+    public void startArray() {
+        start(JSonTape.START_ARRAY);
+    }
+
+    @Override
+    public void endArray() {
+        end(JSonTape.END_ARRAY);
+    }
+
+    @Override
+    public void startElement() {
+    }
+
+    @Override
+    public void endElement() {
+        ++counts[depth-1];
+    }
+
+    @Override
+    public void handleNull() {
+        entry(JSonTape.NULL, 0);
+        done();
+    }
+
+    @Override
+    public void handleBoolean(boolean value) {
+        entry(value ? JSonTape.TRUE : JSonTape.FALSE, 0);
+        done();
+    }
+
+    @Override
+    public void handleNumber(Number value) {
+        if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            handleLong(value.longValue());
+        } else if (value instanceof BigDecimal) {
+            handleDecimal(((BigDecimal)value).toPlainString());
+        } else if (value instanceof BigInteger
+                || value instanceof LazyNumber) {
+            handleDecimal(value.toString());
+        } else {
+            handleDouble(value.doubleValue());
+        }
+    }
+
+    @Override
+    public void handleLong(long value) {
+        entry(JSonTape.LONG, 8).putLong(value);
+        done();
+    }
+
+    @Override
+    public void handleDouble(double value) {
+        entry(JSonTape.DOUBLE, 8).putDouble(value);
+        done();
+    }
+
+    @Override
+    public void handleDecimal(CharSequence value) {
+        int offset = text(value);
+        entry(JSonTape.DECIMAL, 4).putInt(offset);
+        done();
+    }
+
+    @Override
+    public void handleString(String value) {
+        int offset = text(value);
+        entry(JSonTape.STRING, 4).putInt(offset);
+        done();
+    }
+
+    private void start(byte tag) {
+        if (depth >= starts.length) {
+            starts = Arrays.copyOf(starts, 2*depth);
+            counts = Arrays.copyOf(counts, 2*depth);
+        }
+        starts[depth] = tape.position();
+        counts[depth] = 0;
+        ++depth;
+        // the end position and the count are written at the end
+        entry(tag, 8).putLong(0);
+    }
+
+    private void end(byte tag) {
+        entry(tag, 0);
+        --depth;
+        int start = starts[depth];
+        tape.putInt(start + 1, tape.position());
+        tape.putInt(start + 5, counts[depth]);
+        done();
+    }
+
+    /**
+     * Makes the tape the top value once the top-level value is complete.
+     */
+    private void done() {
+        if (depth == 0) {
+            ByteBuffer t = (ByteBuffer)tape.duplicate().flip();
+            ByteBuffer s = (ByteBuffer)strings.duplicate().flip();
+            if (growable) {
+                t = trim(t);
+                s = trim(s);
+            }
+            top = new JSonTape(t.slice(), s.slice());
+        }
+    }
+
+    private ByteBuffer entry(byte tag, int size) {
+        if (tape.remaining() < size + 1 && growable) {
+            tape = grow(tape, size + 1);
+        }
+        return tape.put(tag);
+    }
+
+    /**
+     * Writes a string in the pool, as UTF-8 preceded by its length, and
+     * returns its offset.
+     */
+    private int text(CharSequence s) {
+        int length = s.length();
+        if (strings.remaining() < 4 + 3*length && growable) {
+            strings = grow(strings, 4 + 3*length);
+        }
+        int offset = strings.position();
+        strings.position(offset + 4);
+        for (int i = 0; i < length; ++i) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                strings.put((byte)c);
+            } else if (c < 0x800) {
+                strings.put((byte)(0xC0 | c >> 6));
+                strings.put((byte)(0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                strings.put((byte)(0xF0 | cp >> 18));
+                strings.put((byte)(0x80 | cp >> 12 & 0x3F));
+                strings.put((byte)(0x80 | cp >> 6 & 0x3F));
+                strings.put((byte)(0x80 | cp & 0x3F));
+            } else {
+                strings.put((byte)(0xE0 | c >> 12));
+                strings.put((byte)(0x80 | c >> 6 & 0x3F));
+                strings.put((byte)(0x80 | c & 0x3F));
+            }
+        }
+        strings.putInt(offset, strings.position() - offset - 4);
+        return offset;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int size = buffer.capacity();
+        while (size - buffer.position() < needed) {
+            size *= 2;
+        }
+        buffer.flip();
+        return allocate(size).put(buffer);
+    }
+
+    /**
+     * Copies a buffer into one of its exact size when much of it is unused.
+     */
+    private static ByteBuffer trim(ByteBuffer buffer) {
+        if (buffer.capacity() - buffer.limit() <= buffer.limit()/4) {
+            return buffer;
+        }
+        return (ByteBuffer)allocate(buffer.limit()).put(buffer).flip();
+    }
+}
@@ -0,0 +1,290 @@
+package org.tastefuljava.jsonia.handler;
+
+import java.util.Arrays;
+import org.tastefuljava.jsonia.tree.JSonArray;
+import org.tastefuljava.jsonia.tree.JSonDecimalArray;
+import org.tastefuljava.jsonia.tree.JSonDoubleArray;
+import org.tastefuljava.jsonia.tree.JSonLongArray;
+import org.tastefuljava.jsonia.tree.JSonObject;
+
+/**
+ * Builds a compact generic tree: objects are {@link JSonObject}s, arrays
+ * of integers, of decimals or of doubles are {@link JSonLongArray}s,
+ * {@link JSonDecimalArray}s or {@link JSonDoubleArray}s, and other arrays
+ * are {@link JSonArray}s. They read as the Maps and Lists built by
+ * {@link JSonGenericBuilder}, with equal elements.
+ * <p>
+ * The fields and the elements of the open objects and arrays are gathered
+ * in shared scratch arrays, and copied into exactly sized arrays when
+ * their container ends.
+ */
+public class JSonTreeBuilder extends AbstractJSonBuilder {
+    private static final Object[] NO_VALUES = {};
+    private static final int MAX_DIGITS = 18;
+
+    private static final byte OBJECT = 0;
+    private static final byte EMPTY = 1;
+    private static final byte LONGS = 2;
+    private static final byte DOUBLES = 3;
+    private static final byte DECIMALS = 4;
+    private static final byte MIXED = 5;
+
+    private int[] starts = new int[16];
+    private byte[] kinds = new byte[16];
+    private int depth;
+    private String[] names = new String[64];
+    private Object[] values = new Object[64];
+    private long[] numbers = new long[64];
+    private byte[] scales = new byte[64];
+    private int count;
+    private boolean stored;
+
+    @Override
+    public void reset() {
+        super.reset();
+        Arrays.fill(names, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        depth = 0;
+        count = 0;
+        stored = false;
+    }
+
+    @Override
+    public void startObject() {
+        push(OBJECT);
+    }
+
+    @Override
+    public void endObject() {
+        int start = starts[--depth];
+        top = new JSonObject(Arrays.copyOfRange(names, start, count),
+                Arrays.copyOfRange(values, start, count));
+        release(start);
+    }
+
+    @Override
+    public void startField(String name) {
+    }
+
+    @Override
+    public void endField(String name) {
+        int slot = slot();
+        names[slot] = name;
+        values[slot] = top;
+    }
+
+    @Override
+    public void startArray() {
+        push(EMPTY);
+    }
+
+    @Override
+    public void endArray() {
+        int start = starts[--depth];
+        switch (kinds[depth]) {
+            case LONGS:
+                top = new JSonLongArray(
+                        Arrays.copyOfRange(numbers, start, count));
+                break;
+            case DOUBLES:
+                double[] doubles = new double[count - start];
+                for (int i = 0; i < doubles.length; ++i) {
+                    doubles[i] = Double.longBitsToDouble(numbers[start + i]);
+                }
+                top = new JSonDoubleArray(doubles);
+                break;
+            case DECIMALS:
+                top = new JSonDecimalArray(
+                        Arrays.copyOfRange(numbers, start, count),
+                        Arrays.copyOfRange(scales, start, count));
+                break;
+            case MIXED:
+                top = new JSonArray(Arrays.copyOfRange(values, start, count));
+                break;
+            default:
+                top = new JSonArray(NO_VALUES);
+                break;
+        }
+        release(start);
+    }
+
+    @Override
+    public void startElement() {
+    }
+
+    @Override
+    public void endElement() {
+        if (stored) {
+            // the element is a number, already in the scratch arrays
+            stored = false;
+        } else {
+            mix();
+            int slot = slot();
+            values[slot] = top;
+        }
+    }
+
+    @Override
+    public void handleNull() {
+        top = null;
+    }
+
+    @Override
+    public void handleBoolean(boolean value) {
+        top = value;
+    }
+
+    @Override
+    public void handleNumber(Number value) {
+        top = value;
+    }
+
+    @Override
+    public void handleLong(long value) {
+        byte kind = depth > 0 ? kinds[depth-1] : OBJECT;
+        if (kind == EMPTY || kind == LONGS) {
+            kinds[depth-1] = LONGS;
+            int slot = slot();
+            numbers[slot] = value;
+            stored = true;
+        } else if (kind == DECIMALS) {
+            int slot = slot();
+            numbers[slot] = value;
+            scales[slot] = JSonDecimalArray.INTEGER;
+            stored = true;
+        } else {
+            super.handleLong(value);
+        }
+    }
+
+    @Override
+    public void handleDouble(double value) {
+        byte kind = depth > 0 ? kinds[depth-1] : OBJECT;
+        if (kind == EMPTY || kind == DOUBLES) {
+            kinds[depth-1] = DOUBLES;
+            int slot = slot();
+            numbers[slot] = Double.doubleToRawLongBits(value);
+            stored = true;
+        } else {
+            super.handleDouble(value);
+        }
+    }
+
+    @Override
+    public void handleDecimal(CharSequence value) {
+        byte kind = depth > 0 ? kinds[depth-1] : OBJECT;
+        if ((kind == EMPTY || kind == LONGS || kind == DECIMALS)
+                && decimal(value)) {
+            if (kind == LONGS) {
+                Arrays.fill(scales, starts[depth-1], count - 1,
+                        JSonDecimalArray.INTEGER);
+            }
+            kinds[depth-1] = DECIMALS;
+            stored = true;
+        } else {
+            super.handleDecimal(value);
+        }
+    }
+
+    @Override
+    public void handleString(String value) {
+        top = value;
+    }
+
+    /**
+     * Stores a decimal with at most 18 digits in a new slot, as an unscaled
+     * value and a scale; returns false, leaving the slots unchanged, when
+     * it does not fit or is not a plain decimal.
+     */
+    private boolean decimal(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = length > 0 && text.charAt(0) == '-';
+        if (negative) {
+            ++i;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < length; ++i) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return false;
+                }
+                unscaled = 10*unscaled + c - '0';
+                if (scale >= 0) {
+                    ++scale;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return false;
+            }
+        }
+        if (scale <= 0 || scale > Byte.MAX_VALUE) {
+            return false;
+        }
+        int slot = slot();
+        numbers[slot] = negative ? -unscaled : unscaled;
+        scales[slot] = (byte)scale;
+        return true;
+    }
+
+    /**
+     * Boxes the numbers of the current array when it gets an element that
+     * cannot be stored with them.
+     */
+    private void mix() {
+        byte kind = kinds[depth-1];
+        if (kind == LONGS) {
+            for (int i = starts[depth-1]; i < count; ++i) {
+                long value = numbers[i];
+                values[i] = value == (int)value ? (Object)(int)value : value;
+            }
+        } else if (kind == DOUBLES) {
+            for (int i = starts[depth-1]; i < count; ++i) {
+                values[i] = Double.longBitsToDouble(numbers[i]);
+            }
+        } else if (kind == DECIMALS) {
+            for (int i = starts[depth-1]; i < count; ++i) {
+                values[i] = JSonDecimalArray.toNumber(numbers[i], scales[i]);
+            }
+        }
+        kinds[depth-1] = MIXED;
+    }
+
+    private void push(byte kind) {
+        if (depth >= starts.length) {
+            starts = Arrays.copyOf(starts, 2*depth);
+            kinds = Arrays.copyOf(kinds, 2*depth);
+        }
+        starts[depth] = count;
+        kinds[depth] = kind;
+        ++depth;
+    }
+
+    /**
+     * Returns a new slot in the scratch arrays, which may be reallocated:
+     * they must be dereferenced after the call.
+     */
+    private int slot() {
+        if (count >= values.length) {
+            int length = 2*values.length;
+            names = Arrays.copyOf(names, length);
+            values = Arrays.copyOf(values, length);
+            numbers = Arrays.copyOf(numbers, length);
+            scales = Arrays.copyOf(scales, length);
+        }
+        return count++;
+    }
+
+    /**
+     * Drops the slots of a container that has ended.
+     */
+    private void release(int start) {
+        Arrays.fill(names, start, count, null);
+        Arrays.fill(values, start, count, null);
+        count = start;
+    }
+}
@@ -0,0 +1,170 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A lexer for UTF-8 input that scans a direct buffer, or the windows mapped
+ * from a file, in place. Only a token that straddles two windows is copied
+ * to a small carry buffer, which holds the end of the window and the start
+ * of the next one; the lexer moves back to the window at the next token.
+ */
+class BufferLexer extends ByteLexer {
+    static final long WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private long channelPos;
+    private ByteBuffer window;
+    private long windowBase;
+    private byte[] carry;
+    private ByteBuffer carryBuf;
+    private boolean inCarry;
+    private int resume;
+    private int copied;
+    private ByteBuffer src;
+
+    BufferLexer(ByteBuffer data) {
+        this.channel = null;
+        this.windowSize = 0;
+        this.window = data.duplicate();
+        this.src = window;
+        this.pos = data.position();
+        this.limit = data.limit();
+        this.mark = pos;
+        this.base = -pos;
+    }
+
+    /**
+     * Reads the channel through read-only mappings of at most
+     * <code>windowSize</code> bytes, starting at its current position.
+     */
+    BufferLexer(FileChannel channel, long windowSize) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.channelPos = channel.position();
+        this.base = channelPos;
+        this.window = map();
+        if (window != null) {
+            this.src = window;
+            this.limit = window.limit();
+        }
+    }
+
+    @Override
+    void close() {
+        window = null;
+        src = null;
+        carry = null;
+        carryBuf = null;
+    }
+
+    private ByteBuffer map() throws IOException {
+        long size = Math.min(windowSize, channel.size() - channelPos);
+        if (size <= 0) {
+            return null;
+        }
+        // the previous window is unmapped when it gets garbage collected
+        ByteBuffer result = channel.map(
+                FileChannel.MapMode.READ_ONLY, channelPos, size);
+        windowBase = channelPos;
+        channelPos += size;
+        return result;
+    }
+
+    @Override
+    byte byteAt(int index) {
+        return src.get(index);
+    }
+
+    @Override
+    boolean fill() throws IOException {
+        if (channel == null || src == null) {
+            return false;
+        }
+        if (!inCarry) {
+            // the token goes on in the next window
+            long start = base + mark;
+            ByteBuffer next = map();
+            if (next == null) {
+                return false;
+            }
+            int keep = limit - mark;
+            if (keep == 0) {
+                window = next;
+                src = next;
+                base = windowBase;
+                pos -= mark;
+                mark = 0;
+                limit = next.limit();
+                return true;
+            }
+            if (carry == null || carry.length < keep + BUFFER_SIZE) {
+                carry = new byte[Math.max(BUFFER_SIZE, 2*keep)];
+                carryBuf = ByteBuffer.wrap(carry);
+            }
+            for (int i = 0; i < keep; ++i) {
+                carry[i] = window.get(mark + i);
+            }
+            window = next;
+            src = carryBuf;
+            inCarry = true;
+            base = start;
+            pos -= mark;
+            mark = 0;
+            limit = keep;
+            resume = keep;
+            copied = 0;
+        } else if (mark >= resume) {
+            // the token starts in the window
+            src = window;
+            inCarry = false;
+            base = windowBase;
+            pos -= resume;
+            mark -= resume;
+            limit = window.limit();
+            return pos < limit || fill();
+        } else if (mark > 0) {
+            base += mark;
+            System.arraycopy(carry, mark, carry, 0, limit - mark);
+            pos -= mark;
+            limit -= mark;
+            resume -= mark;
+            mark = 0;
+        }
+        if (copied == window.limit()) {
+            // a token longer than a window
+            ByteBuffer next = map();
+            if (next == null) {
+                return false;
+            }
+            window = next;
+            resume = limit;
+            copied = 0;
+        }
+        if (limit == carry.length) {
+            byte[] newCarry = new byte[2*carry.length];
+            System.arraycopy(carry, 0, newCarry, 0, limit);
+            carry = newCarry;
+            carryBuf = ByteBuffer.wrap(carry);
+            src = carryBuf;
+        }
+        int count = Math.min(carry.length - limit, window.limit() - copied);
+        for (int i = 0; i < count; ++i) {
+            carry[limit + i] = window.get(copied + i);
+        }
+        copied += count;
+        limit += count;
+        return true;
+    }
+
+    @Override
+    Symbol nextsy() throws IOException {
+        if (inCarry && pos >= resume) {
+            mark = pos;
+            fill();
+        }
+        return super.nextsy();
+    }
+}
@@ -0,0 +1,262 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+
+/**
+ * A lexer for UTF-8 input. Subclasses give access to the bytes through
+ * {@link #byteAt} and {@link #fill}; the bytes from <code>mark</code> to
+ * <code>limit</code> must stay available until the next token.
+ */
+abstract class ByteLexer extends JSonLexer {
+    int pos;
+    int limit;
+    int mark;
+    long base;
+
+    abstract byte byteAt(int index);
+
+    /**
+     * Makes more bytes available, keeping everything from
+     * <code>mark</code> onwards. Returns false at end of input.
+     */
+    abstract boolean fill() throws IOException;
+
+    @Override
+    final long position() {
+        return base + mark;
+    }
+
+    @Override
+    final void rewind() {
+        pos = mark;
+    }
+
+    @Override
+    final void skipLine() throws IOException {
+        while (true) {
+            if (pos >= limit) {
+                mark = pos;
+                if (!fill()) {
+                    return;
+                }
+            }
+            if (byteAt(pos++) == '\n') {
+                return;
+            }
+        }
+    }
+
+    @Override
+    final int peekc() throws IOException {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return byteAt(pos) & 0xFF;
+    }
+
+    @Override
+    final void skipc() {
+        ++pos;
+    }
+
+    @Override
+    Symbol nextsy() throws IOException {
+        int c;
+        newline = false;
+        while (true) {
+            if (pos >= limit) {
+                mark = pos;
+                if (!fill()) {
+                    c = -1;
+                    break;
+                }
+            }
+            c = byteAt(pos) & 0xFF;
+            if (c != ' ' && (c > ' ' || !Character.isWhitespace(c))) {
+                break;
+            } else if (c == '\n') {
+                newline = true;
+            }
+            ++pos;
+        }
+        mark = pos;
+        return token(c);
+    }
+
+    /**
+     * Reads the token that starts with <code>c</code>, at <code>mark</code>.
+     */
+    private Symbol token(int c) throws IOException {
+        switch (c) {
+            case -1:
+                return Symbol.EOF;
+            case '{':
+                ++pos;
+                return Symbol.LBRACE;
+            case '}':
+                ++pos;
+                return Symbol.RBRACE;
+            case '[':
+                ++pos;
+                return Symbol.LBRACKET;
+            case ']':
+                ++pos;
+                return Symbol.RBRACKET;
+            case ',':
+                ++pos;
+                return Symbol.COMMA;
+            case ':':
+                ++pos;
+                return Symbol.COLON;
+            case '"':
+                return string();
+            case '-':
+                return number();
+            default:
+                if (isDigit(c)) {
+                    return number();
+                } else if (isLetter(c)) {
+                    return keyword();
+                } else if (c >= 0x80) {
+                    throw new IOException("Invalid character 0x"
+                            + Integer.toHexString(c));
+                } else {
+                    throw new IOException("Invalid character " + (char)c);
+                }
+        }
+    }
+
+    static boolean isLetter(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+                || c == '_' || c == '$';
+    }
+
+    private Symbol string() throws IOException {
+        ++pos;
+        slen = 0;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                throw new IOException("End of file in string");
+            }
+            // ASCII fast path
+            if (slen >= sbuf.length) {
+                reserve(1);
+            }
+            int i = pos;
+            int end = Math.min(limit, i + sbuf.length - slen);
+            char[] cs = sbuf;
+            int n = slen;
+            int c = 0;
+            while (i < end && (c = byteAt(i)) >= 32 && c != '"'
+                    && c != '\\') {
+                cs[n++] = (char)c;
+                ++i;
+            }
+            pos = i;
+            slen = n;
+            if (i >= end) {
+                continue;
+            }
+            if (c == '"') {
+                break;
+            } else if (c == '\\') {
+                ++pos;
+                escape();
+            } else if (c < 0) {
+                multiByte(c);
+            } else {
+                throw new IOException("Invalid character in string");
+            }
+        }
+        ++pos;
+        chars.reset(sbuf, 0, slen);
+        return Symbol.STRING;
+    }
+
+    private void multiByte(int c) throws IOException {
+        int count;
+        int cp;
+        int min;
+        if ((c & 0xE0) == 0xC0) {
+            count = 1;
+            cp = c & 0x1F;
+            min = 0x80;
+        } else if ((c & 0xF0) == 0xE0) {
+            count = 2;
+            cp = c & 0x0F;
+            min = 0x800;
+        } else if ((c & 0xF8) == 0xF0) {
+            count = 3;
+            cp = c & 0x07;
+            min = 0x10000;
+        } else {
+            ++pos;
+            append('\uFFFD');
+            return;
+        }
+        ++pos;
+        for (int i = 0; i < count; ++i) {
+            if (pos >= limit && !fill()) {
+                throw new IOException("End of file in string");
+            }
+            int cb = byteAt(pos);
+            if ((cb & 0xC0) != 0x80) {
+                append('\uFFFD');
+                return;
+            }
+            cp = (cp << 6) | (cb & 0x3F);
+            ++pos;
+        }
+        if (cp < min || cp > Character.MAX_CODE_POINT
+                || cp >= Character.MIN_SURROGATE
+                    && cp <= Character.MAX_SURROGATE) {
+            append('\uFFFD');
+        } else if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            append(Character.highSurrogate(cp));
+            append(Character.lowSurrogate(cp));
+        } else {
+            append((char)cp);
+        }
+    }
+
+    @Override
+    final CharSequence tokenText() {
+        // only used for numbers and keywords, which are plain ASCII
+        int length = pos - mark;
+        slen = 0;
+        reserve(length);
+        for (int i = 0; i < length; ++i) {
+            sbuf[i] = (char)byteAt(mark + i);
+        }
+        return slice.reset(sbuf, 0, length);
+    }
+
+    private Symbol keyword() throws IOException {
+        ++pos;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                break;
+            }
+            int c = byteAt(pos);
+            if (!isLetter(c) && !isDigit(c)) {
+                break;
+            }
+            ++pos;
+        }
+        Symbol sy = keyword(pos - mark);
+        if (sy == null) {
+            throw new IOException("Invalid keyword " + tokenText());
+        }
+        return sy;
+    }
+
+    @Override
+    final boolean matches(String keyword) {
+        for (int i = 0; i < keyword.length(); ++i) {
+            if (byteAt(mark + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
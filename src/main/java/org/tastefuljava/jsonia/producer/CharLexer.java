@@ -0,0 +1,269 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+class CharLexer extends JSonLexer {
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<>();
+
+    private final Reader in;
+    private final String source;
+    private int sourcePos;
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private int mark;
+    private long base;
+
+    CharLexer(Reader in) {
+        this.in = in;
+        this.source = null;
+        this.buf = acquireBuffer();
+    }
+
+    CharLexer(String source) {
+        this.in = null;
+        this.source = source;
+        this.buf = acquireBuffer();
+    }
+
+    @Override
+    void close() {
+        if (buf != null) {
+            releaseBuffer(buf);
+            buf = null;
+        }
+    }
+
+    private static char[] acquireBuffer() {
+        char[] result = BUFFERS.get();
+        if (result == null) {
+            return new char[BUFFER_SIZE];
+        }
+        // a nested parse on the same thread gets its own buffer
+        BUFFERS.set(null);
+        return result;
+    }
+
+    private static void releaseBuffer(char[] buffer) {
+        if (buffer.length <= MAX_POOLED_SIZE) {
+            BUFFERS.set(buffer);
+        }
+    }
+
+    /**
+     * Reads more characters into the buffer, keeping everything from
+     * <code>mark</code> onwards. Returns false at end of input.
+     */
+    private boolean fill() throws IOException {
+        int keep = limit - mark;
+        if (mark > 0) {
+            base += mark;
+            System.arraycopy(buf, mark, buf, 0, keep);
+            pos -= mark;
+            mark = 0;
+            limit = keep;
+        } else if (limit == buf.length) {
+            char[] newBuf = new char[2*buf.length];
+            System.arraycopy(buf, 0, newBuf, 0, limit);
+            buf = newBuf;
+        }
+        int count = read(buf, limit, buf.length - limit);
+        if (count <= 0) {
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+
+    private int read(char[] cbuf, int off, int len) throws IOException {
+        if (in != null) {
+            return in.read(cbuf, off, len);
+        }
+        int count = Math.min(len, source.length() - sourcePos);
+        if (count <= 0) {
+            return -1;
+        }
+        source.getChars(sourcePos, sourcePos + count, cbuf, off);
+        sourcePos += count;
+        return count;
+    }
+
+    @Override
+    long position() {
+        return base + mark;
+    }
+
+    @Override
+    void rewind() {
+        pos = mark;
+    }
+
+    @Override
+    void skipLine() throws IOException {
+        while (true) {
+            if (pos >= limit) {
+                mark = pos;
+                if (!fill()) {
+                    return;
+                }
+            }
+            if (buf[pos++] == '\n') {
+                return;
+            }
+        }
+    }
+
+    @Override
+    int peekc() throws IOException {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buf[pos];
+    }
+
+    @Override
+    void skipc() {
+        ++pos;
+    }
+
+    @Override
+    Symbol nextsy() throws IOException {
+        int c;
+        newline = false;
+        while (true) {
+            if (pos >= limit) {
+                mark = pos;
+                if (!fill()) {
+                    c = -1;
+                    break;
+                }
+            }
+            c = buf[pos];
+            if (!isWhitespace(c)) {
+                break;
+            } else if (c == '\n') {
+                newline = true;
+            }
+            ++pos;
+        }
+        mark = pos;
+        switch (c) {
+            case -1:
+                return Symbol.EOF;
+            case '{':
+                ++pos;
+                return Symbol.LBRACE;
+            case '}':
+                ++pos;
+                return Symbol.RBRACE;
+            case '[':
+                ++pos;
+                return Symbol.LBRACKET;
+            case ']':
+                ++pos;
+                return Symbol.RBRACKET;
+            case ',':
+                ++pos;
+                return Symbol.COMMA;
+            case ':':
+                ++pos;
+                return Symbol.COLON;
+            case '"':
+                return string();
+            case '-':
+                return number();
+            default:
+                if (isDigit(c)) {
+                    return number();
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    return keyword();
+                } else {
+                    throw new IOException("Invalid character " + (char)c);
+                }
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || (c < ' ' || c > '~') && Character.isWhitespace(c);
+    }
+
+    private Symbol string() throws IOException {
+        int start = ++pos - mark;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                throw new IOException("End of file in string");
+            }
+            char c = buf[pos];
+            if (c == '"') {
+                chars.reset(buf, mark + start, pos - mark - start);
+                break;
+            } else if (c == '\\' || c < 32) {
+                escapedString(start);
+                break;
+            }
+            ++pos;
+        }
+        ++pos;
+        return Symbol.STRING;
+    }
+
+    private void escapedString(int start) throws IOException {
+        slen = 0;
+        reserve(pos - mark - start);
+        System.arraycopy(buf, mark + start, sbuf, 0, pos - mark - start);
+        slen = pos - mark - start;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                throw new IOException("End of file in string");
+            }
+            char c = buf[pos];
+            if (c == '"') {
+                break;
+            } else if (c == '\\') {
+                ++pos;
+                escape();
+            } else if (c >= 32) {
+                append(c);
+                ++pos;
+            } else {
+                throw new IOException("Invalid character in string");
+            }
+        }
+        chars.reset(sbuf, 0, slen);
+    }
+
+    @Override
+    CharSequence tokenText() {
+        return slice.reset(buf, mark, pos - mark);
+    }
+
+    private Symbol keyword() throws IOException {
+        ++pos;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                break;
+            }
+            if (!Character.isJavaIdentifierPart(buf[pos])) {
+                break;
+            }
+            ++pos;
+        }
+        Symbol sy = keyword(pos - mark);
+        if (sy == null) {
+            throw new IOException("Invalid keyword "
+                    + new String(buf, mark, pos - mark));
+        }
+        return sy;
+    }
+
+    @Override
+    boolean matches(String keyword) {
+        for (int i = 0; i < keyword.length(); ++i) {
+            if (buf[mark + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
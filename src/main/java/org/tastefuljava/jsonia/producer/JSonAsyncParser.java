@@ -0,0 +1,152 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.producer.JSonLexer.Underflow;
+import org.tastefuljava.jsonia.producer.JSonReader.Token;
+
+/**
+ * A non-blocking parser for UTF-8 input: the input is fed in chunks as it
+ * arrives, and the handler is called for every complete token. Only the
+ * unparsed end of the input, at most a partial token, is kept between
+ * chunks.
+ */
+public class JSonAsyncParser {
+    private final Utf8Lexer lexer = new Utf8Lexer();
+    private final JSonReader reader = new JSonReader(lexer);
+    private final JSonHandler handler;
+    private boolean[] arrays = new boolean[16];
+    private String[] fields = new String[16];
+    private int level;
+    private boolean done;
+
+    public JSonAsyncParser(JSonHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Returns true once the top-level value is complete. Any input after it
+     * is ignored.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, as far as they go.
+     */
+    public void feed(ByteBuffer data) throws IOException {
+        if (!done) {
+            lexer.feed(data);
+            if (lexer.ready()) {
+                run();
+            }
+        }
+    }
+
+    /**
+     * Signals that all the input has been fed; fails if the value is
+     * incomplete.
+     */
+    public void endOfInput() throws IOException {
+        if (!done) {
+            lexer.endOfInput();
+            run();
+            if (!done) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        try {
+            while (!done) {
+                handle(reader.nextToken());
+            }
+        } catch (Underflow e) {
+            // the token will be read again when more input is fed
+            lexer.rewind();
+        }
+    }
+
+    private void handle(Token token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                startValue();
+                handler.startObject();
+                push(false);
+                break;
+            case START_ARRAY:
+                startValue();
+                handler.startArray();
+                push(true);
+                break;
+            case END_OBJECT:
+                --level;
+                handler.endObject();
+                endValue();
+                break;
+            case END_ARRAY:
+                --level;
+                handler.endArray();
+                endValue();
+                break;
+            case FIELD_NAME:
+                fields[level-1] = reader.getString();
+                handler.startField(fields[level-1]);
+                break;
+            case NULL:
+                startValue();
+                handler.handleNull();
+                endValue();
+                break;
+            case BOOLEAN:
+                startValue();
+                handler.handleBoolean(reader.getBoolean());
+                endValue();
+                break;
+            case STRING:
+                startValue();
+                handler.handleString(reader.getString());
+                endValue();
+                break;
+            case NUMBER:
+                startValue();
+                JSonParser.number(lexer, handler);
+                endValue();
+                break;
+            case END:
+                done = true;
+                break;
+        }
+    }
+
+    private void startValue() {
+        if (level > 0 && arrays[level-1]) {
+            handler.startElement();
+        }
+    }
+
+    private void endValue() {
+        if (level > 0) {
+            if (arrays[level-1]) {
+                handler.endElement();
+            } else {
+                handler.endField(fields[level-1]);
+            }
+        }
+    }
+
+    private void push(boolean array) {
+        if (level >= arrays.length) {
+            boolean[] newArrays = new boolean[2*arrays.length];
+            System.arraycopy(arrays, 0, newArrays, 0, level);
+            arrays = newArrays;
+            String[] newFields = new String[2*fields.length];
+            System.arraycopy(fields, 0, newFields, 0, level);
+            fields = newFields;
+        }
+        arrays[level++] = array;
+    }
+}
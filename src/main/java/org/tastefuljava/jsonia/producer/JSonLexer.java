@@ -0,0 +1,342 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.tastefuljava.jsonia.util.CharSlice;
+import org.tastefuljava.jsonia.util.LazyNumber;
+import org.tastefuljava.jsonia.util.Numbers;
+
+abstract class JSonLexer {
+    static enum Symbol {
+        EOF, NULL, FALSE, TRUE, LBRACE, RBRACE, LBRACKET, RBRACKET,
+        COMMA, COLON, NUMBER, STRING
+    };
+
+    static enum NumberKind {
+        LONG, DOUBLE, DECIMAL
+    };
+
+    /**
+     * Thrown by a feeding lexer that needs more input to complete a token.
+     */
+    static final class Underflow extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        Underflow() {
+            super("More input needed");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    static final int BUFFER_SIZE = 8192;
+    static final int MAX_POOLED_SIZE = 65536;
+
+    static final int MAX_DIGITS = 19;
+    static final int MAX_EXPONENT = 100000;
+
+    char[] sbuf = new char[64];
+    int slen;
+    final CharSlice slice = new CharSlice();
+    final CharSlice chars = new CharSlice();
+    boolean lazyNumbers;
+    boolean skipping;
+    boolean newline;
+    NumberKind numberKind;
+    long longValue;
+    double doubleValue;
+    private boolean negative;
+    private long mantissa;
+    private int exponent;
+    private boolean truncated;
+    private boolean hasFrac;
+
+    abstract Symbol nextsy() throws IOException;
+    abstract void close();
+
+    /**
+     * Returns the offset in the input of the current token: in chars for a
+     * character source, in bytes for a UTF-8 source.
+     */
+    abstract long position();
+
+    /**
+     * Moves back to the start of the current token.
+     */
+    abstract void rewind();
+
+    /**
+     * Skips everything up to and including the next newline.
+     */
+    abstract void skipLine() throws IOException;
+
+    String stringValue() {
+        return chars.toString();
+    }
+
+    /**
+     * Returns the current string as a view that is only valid until the
+     * next call to {@link #nextsy()}.
+     */
+    CharSlice charsValue() {
+        return chars;
+    }
+
+    abstract int peekc() throws IOException;
+    abstract void skipc();
+    abstract boolean matches(String keyword);
+    abstract CharSequence tokenText();
+
+    static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    final Symbol keyword(int length) {
+        switch (length) {
+            case 4:
+                if (matches("null")) {
+                    return Symbol.NULL;
+                } else if (matches("true")) {
+                    return Symbol.TRUE;
+                }
+                break;
+            case 5:
+                if (matches("false")) {
+                    return Symbol.FALSE;
+                }
+                break;
+            case 9:
+                if (matches("undefined")) {
+                    return Symbol.NULL;
+                }
+                break;
+        }
+        return null;
+    }
+
+    final void append(char c) {
+        if (slen >= sbuf.length) {
+            reserve(1);
+        }
+        sbuf[slen++] = c;
+    }
+
+    final void reserve(int count) {
+        if (slen + count > sbuf.length) {
+            char[] newBuf = new char[Math.max(2*sbuf.length, slen + count)];
+            System.arraycopy(sbuf, 0, newBuf, 0, slen);
+            sbuf = newBuf;
+        }
+    }
+
+    final void escape() throws IOException {
+        int c = peekc();
+        switch (c) {
+            case -1:
+                throw new IOException("End of file in string");
+            case '\\':
+            case '/':
+            case '"':
+                append((char)c);
+                skipc();
+                break;
+            case 'b':
+                append('\b');
+                skipc();
+                break;
+            case 'f':
+                append('\f');
+                skipc();
+                break;
+            case 'n':
+                append('\n');
+                skipc();
+                break;
+            case 'r':
+                append('\r');
+                skipc();
+                break;
+            case 't':
+                append('\t');
+                skipc();
+                break;
+            case 'u':
+                skipc();
+                int val = hexDigit();
+                val = 16*val + hexDigit();
+                val = 16*val + hexDigit();
+                val = 16*val + hexDigit();
+                append((char)val);
+                break;
+            default:
+                throw new IOException("Invalid escape sequence");
+        }
+    }
+
+    private int hexDigit() throws IOException {
+        int c = peekc();
+        int result;
+        if (c >= '0' && c <= '9') {
+            result = c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            result = c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            result = c - 'A' + 10;
+        } else {
+            throw new IOException("Hex digit expected");
+        }
+        skipc();
+        return result;
+    }
+
+    /**
+     * Reads a number token; the current character is its first one.
+     */
+    final Symbol number() throws IOException {
+        boolean negative = peekc() == '-';
+        if (negative) {
+            skipc();
+            if (!isDigit(peekc())) {
+                throw new IOException("Invalid number");
+            }
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int c;
+        if (peekc() == '0') {
+            c = advance();
+        } else {
+            while (isDigit(c = peekc())) {
+                if (digits < MAX_DIGITS) {
+                    mantissa = 10*mantissa + c - '0';
+                    ++digits;
+                } else {
+                    ++exponent;
+                    truncated = true;
+                }
+                skipc();
+            }
+        }
+        boolean hasFrac = c == '.';
+        if (hasFrac) {
+            while (isDigit(c = advance())) {
+                if (digits < MAX_DIGITS) {
+                    mantissa = 10*mantissa + c - '0';
+                    if (mantissa != 0) {
+                        ++digits;
+                    }
+                    --exponent;
+                } else {
+                    truncated = true;
+                }
+            }
+        }
+        boolean hasExp = c == 'E' || c == 'e';
+        if (hasExp) {
+            c = advance();
+            boolean negExp = c == '-';
+            if (c == '+' || c == '-') {
+                c = advance();
+            }
+            if (!isDigit(c)) {
+                throw new IOException("Invalid number " + tokenText());
+            }
+            int exp = 0;
+            do {
+                if (exp < MAX_EXPONENT) {
+                    exp = 10*exp + c - '0';
+                }
+            } while (isDigit(c = advance()));
+            exponent += negExp ? -exp : exp;
+        }
+        number(negative, mantissa, exponent, truncated, hasFrac, hasExp);
+        return Symbol.NUMBER;
+    }
+
+    private int advance() throws IOException {
+        skipc();
+        return peekc();
+    }
+
+    /**
+     * Records the value of a number token. The mantissa holds at most 19
+     * significant digits as an unsigned value; <code>truncated</code> tells
+     * whether digits were dropped.
+     */
+    final void number(boolean negative, long mantissa, int exponent,
+            boolean truncated, boolean hasFrac, boolean hasExp)
+            throws IOException {
+        if (skipping) {
+            // the value will not be used: spare the conversion
+            numberKind = NumberKind.DECIMAL;
+            return;
+        }
+        this.negative = negative;
+        this.mantissa = mantissa;
+        this.exponent = exponent;
+        this.truncated = truncated;
+        this.hasFrac = hasFrac;
+        if (hasExp) {
+            numberKind = NumberKind.DOUBLE;
+            doubleValue = Numbers.toDouble(
+                    negative, mantissa, exponent, truncated);
+            if (Double.isNaN(doubleValue)) {
+                doubleValue = Double.parseDouble(tokenText().toString());
+            }
+        } else if (!hasFrac && exponent == 0 && (mantissa >= 0
+                || negative && mantissa == Long.MIN_VALUE)) {
+            numberKind = NumberKind.LONG;
+            longValue = negative ? -mantissa : mantissa;
+        } else {
+            numberKind = NumberKind.DECIMAL;
+        }
+    }
+
+    NumberKind numberKind() {
+        return numberKind;
+    }
+
+    long longValue() {
+        return longValue;
+    }
+
+    double doubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Returns the current number as an Integer, a Long, a Double, a
+     * BigDecimal or a BigInteger, or as a LazyNumber in place of the last
+     * two when lazy numbers are enabled.
+     */
+    Number numberValue() {
+        switch (numberKind) {
+            case LONG:
+                if (longValue < Integer.MIN_VALUE
+                        || longValue > Integer.MAX_VALUE) {
+                    return longValue;
+                }
+                return (int)longValue;
+            case DOUBLE:
+                return doubleValue;
+            default:
+                if (hasFrac && !truncated && mantissa >= 0) {
+                    long unscaled = negative ? -mantissa : mantissa;
+                    return lazyNumbers
+                            ? new LazyNumber(unscaled, -exponent)
+                            : BigDecimal.valueOf(unscaled, -exponent);
+                }
+                String text = tokenText().toString();
+                if (lazyNumbers) {
+                    return new LazyNumber(text);
+                }
+                return hasFrac ? new BigDecimal(text) : new BigInteger(text);
+        }
+    }
+}
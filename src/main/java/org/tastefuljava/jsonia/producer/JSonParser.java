@@ -1,52 +1,126 @@
 package org.tastefuljava.jsonia.producer;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import org.tastefuljava.jsonia.JSonCharHandler;
 import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.producer.JSonLexer.Symbol;
+import org.tastefuljava.jsonia.util.CharSlice;
+import org.tastefuljava.jsonia.util.LazyNumber;
+import org.tastefuljava.jsonia.util.SymbolTable;
 
 public class JSonParser {
-    private static enum Symbol {
-        EOF, NULL, FALSE, TRUE, LBRACE, RBRACE, LBRACKET, RBRACKET,
-        COMMA, COLON, NUMBER, STRING, ID
-    };
-
-    @SuppressWarnings("serial")
-    private static final Map<String,Symbol> KEYWORDS = new HashMap<>();
-    static {
-        KEYWORDS.put("null", Symbol.NULL);
-        KEYWORDS.put("undefined", Symbol.NULL);
-        KEYWORDS.put("false", Symbol.FALSE);
-        KEYWORDS.put("true", Symbol.TRUE);
-    }
-
-    private static final BigInteger MIN_LONG
-            = BigInteger.valueOf(Long.MIN_VALUE);
-    private static final BigInteger MAX_LONG
-            = BigInteger.valueOf(Long.MAX_VALUE);
-
-    private final Reader in;
+    private static final long MAPPING_THRESHOLD = 1024*1024;
+    private static final int PARSER_SYMBOLS = 256;
+
+    private final JSonLexer lexer;
     private final JSonHandler handler;
-    private int c = ' ';
+    private final JSonCharHandler charHandler;
+    private char[] names;
+    private int namesLength;
+    private final CharSlice name = new CharSlice();
+    private SymbolTable symbols;
+    private int canonicalLength;
+    private long recordOffset = -1;
+    private int elements;
     private Symbol sy;
-    private String string;
-    private Number number;
 
-    private JSonParser(Reader in, JSonHandler handler) {
-        this.in = in;
+    public JSonParser(Reader in, JSonHandler handler) {
+        this(new CharLexer(in), handler);
+    }
+
+    public JSonParser(String json, JSonHandler handler) {
+        this(new CharLexer(json), handler);
+    }
+
+    /**
+     * Creates a parser for UTF-8 encoded input.
+     */
+    public JSonParser(InputStream in, JSonHandler handler) {
+        this(new Utf8Lexer(in), handler);
+    }
+
+    public JSonParser(byte[] data, JSonHandler handler) {
+        this(new Utf8Lexer(data, 0, data.length), handler);
+    }
+
+    public JSonParser(ByteBuffer data, JSonHandler handler) {
+        this(Utf8Lexer.forBuffer(data), handler);
+    }
+
+    JSonParser(JSonLexer lexer, JSonHandler handler) {
+        this.lexer = lexer;
         this.handler = handler;
+        this.charHandler = handler instanceof JSonCharHandler
+                ? (JSonCharHandler)handler : null;
+    }
+
+    /**
+     * When set, decimals and integers that do not fit in a long are
+     * reported as {@link LazyNumber}s instead of BigDecimals and
+     * BigIntegers.
+     */
+    public void setLazyNumbers(boolean lazyNumbers) {
+        lexer.lazyNumbers = lazyNumbers;
+    }
+
+    /**
+     * Sets the table from which field names are taken. By default, each
+     * parser has a small table of its own; a table can be shared by parsers
+     * that read similar documents.
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * String values of at most <code>maxLength</code> chars are also taken
+     * from the symbol table. The default is 0: values are not canonicalized.
+     */
+    public void setCanonicalStrings(int maxLength) {
+        this.canonicalLength = maxLength;
+    }
+
+    /**
+     * Parses a UTF-8 encoded file by mapping it into memory.
+     */
+    public static void parse(File file, JSonHandler handler)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(), StandardOpenOption.READ)) {
+            new JSonParser(new BufferLexer(channel, BufferLexer.WINDOW_SIZE),
+                    handler).parse();
+        }
+    }
+
+    public static void parse(File file, String encoding,
+            JSonHandler handler) throws IOException {
+        if (isUtf8(encoding) && file.length() >= MAPPING_THRESHOLD) {
+            parse(file, handler);
+        } else {
+            parse(new FileInputStream(file), encoding, handler);
+        }
     }
 
     public static void parse(InputStream in, String encoding,
             JSonHandler handler) throws IOException {
-        try (Reader reader = new InputStreamReader(in, encoding)) {
-            parse(reader, handler);
+        if (!isUtf8(encoding)) {
+            try (Reader reader = new InputStreamReader(in, encoding)) {
+                parse(reader, handler);
+            }
+        } else {
+            try (InputStream stream = in) {
+                new JSonParser(stream, handler).parse();
+            }
         }
     }
 
@@ -56,12 +130,121 @@ public class JSonParser {
     }
 
     public static void parse(String s, JSonHandler handler) throws IOException {
-        parse(new StringReader(s), handler);
+        new JSonParser(s, handler).parse();
+    }
+
+    public static void parse(byte[] data, JSonHandler handler)
+            throws IOException {
+        parse(data, 0, data.length, handler);
+    }
+
+    public static void parse(byte[] data, int offset, int length,
+            JSonHandler handler) throws IOException {
+        new JSonParser(new Utf8Lexer(data, offset, length), handler).parse();
+    }
+
+    public static void parse(ByteBuffer data, JSonHandler handler)
+            throws IOException {
+        new JSonParser(data, handler).parse();
+    }
+
+    private static boolean isUtf8(String encoding) {
+        try {
+            return Charset.forName(encoding).equals(StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // let InputStreamReader report the unsupported encoding
+            return false;
+        }
     }
 
     public void parse() throws IOException {
-        nextsy();
+        try {
+            nextsy();
+            value();
+            nextsy();
+        } finally {
+            lexer.close();
+        }
+    }
+
+    /**
+     * Parses the next of a sequence of concatenated values, such as the
+     * lines of an NDJSON file. Nothing is read past the end of the value.
+     * Returns false at end of input.
+     */
+    public boolean parseNext() throws IOException {
+        try {
+            nextsy();
+        } finally {
+            // even when the first token is invalid
+            recordOffset = lexer.position();
+        }
+        if (sy == Symbol.EOF) {
+            close();
+            return false;
+        }
         value();
+        return true;
+    }
+
+    /**
+     * Same as {@link #parseNext()} for the content of an array without its
+     * brackets: the values must be separated with commas.
+     */
+    public boolean parseNextElement() throws IOException {
+        if (elements > 0) {
+            nextsy();
+            if (sy == Symbol.EOF) {
+                close();
+                return false;
+            } else if (sy != Symbol.COMMA) {
+                throw new IOException("',' expected");
+            }
+        }
+        if (!parseNext()) {
+            if (elements > 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            return false;
+        }
+        ++elements;
+        return true;
+    }
+
+    /**
+     * Returns the offset in the input of the value last read by
+     * {@link #parseNext()}: in chars for a character source, in bytes for a
+     * UTF-8 source.
+     */
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * Skips to the start of the next record after a failed
+     * {@link #parseNext()}. Parsing resumes at the next newline, or at the
+     * offending token when it starts a line of its own, as it does when the
+     * failed record was truncated.
+     */
+    public void recover() throws IOException {
+        namesLength = 0;
+        if (lexer.newline && lexer.position() > recordOffset) {
+            lexer.rewind();
+        } else {
+            lexer.skipLine();
+        }
+    }
+
+    /**
+     * Releases the buffers of the parser. The underlying stream is not
+     * closed.
+     */
+    public void close() {
+        lexer.close();
+    }
+
+    private void nextsy() throws IOException {
+        sy = lexer.nextsy();
     }
 
     private void value() throws IOException {
@@ -78,10 +261,17 @@ public class JSonParser {
                 handler.handleBoolean(true);
                 break;
             case STRING:
-                handler.handleString(string);
+                if (charHandler != null) {
+                    charHandler.handleString(lexer.charsValue());
+                } else if (lexer.charsValue().length() <= canonicalLength) {
+                    handler.handleString(
+                            lexer.charsValue().toString(symbols()));
+                } else {
+                    handler.handleString(lexer.stringValue());
+                }
                 break;
             case NUMBER:
-                handler.handleNumber(number);
+                number();
                 break;
             case LBRACKET:
                 array();
@@ -89,213 +279,39 @@ public class JSonParser {
             case LBRACE:
                 object();
                 break;
+            default:
+                throw new IOException("Unexpected symbol " + sy);
         }
-        nextsy();
     }
 
-    private int nextc() throws IOException {
-        return c = in.read();
+    private SymbolTable symbols() {
+        if (symbols == null) {
+            symbols = new SymbolTable(
+                    PARSER_SYMBOLS, SymbolTable.DEFAULT_MAX_LENGTH);
+        }
+        return symbols;
     }
 
-    private Symbol nextsy() throws IOException {
-        while (Character.isWhitespace(c)) {
-            nextc();
-        }
-        switch (c) {
-            case -1:
-                sy = Symbol.EOF;
-                break;
-            case '{':
-                nextc();
-                sy = Symbol.LBRACE;
-                break;
-            case '}':
-                nextc();
-                sy = Symbol.RBRACE;
-                break;
-            case '[':
-                nextc();
-                sy = Symbol.LBRACKET;
-                break;
-            case ']':
-                nextc();
-                sy = Symbol.RBRACKET;
-                break;
-            case ',':
-                nextc();
-                sy = Symbol.COMMA;
-                break;
-            case ':':
-                nextc();
-                sy = Symbol.COLON;
-                break;
-            case '"':
-                string();
+    private void number() throws IOException {
+        number(lexer, handler);
+    }
+
+    static void number(JSonLexer lexer, JSonHandler handler) {
+        switch (lexer.numberKind()) {
+            case LONG:
+                handler.handleLong(lexer.longValue());
                 break;
-            case '-':
-                nextc();
-                if (!Character.isDigit(c)) {
-                    throw new IOException("Invalid number");
-                }
-                number(true);
+            case DOUBLE:
+                handler.handleDouble(lexer.doubleValue());
                 break;
             default:
-                if (Character.isDigit(c)) {
-                    number(false);
-                } else if (Character.isJavaIdentifierStart(c)) {
-                    keyword();
+                if (lexer.lazyNumbers) {
+                    handler.handleNumber(lexer.numberValue());
                 } else {
-                    throw new IOException("Invalid character " + (char)c);
+                    handler.handleDecimal(lexer.tokenText());
                 }
                 break;
         }
-        return sy;
-    }
-
-    private void string() throws IOException {
-        StringBuilder buf = new StringBuilder();
-        nextc();
-        while (c != '"') {
-            if (c < 0) {
-                throw new IOException("End of file in string");
-            }
-            if (c == '\\') {
-                nextc();
-                switch (c) {
-                    case -1:
-                        throw new IOException("End of file in string");
-                    case '\\':
-                    case '/':
-                    case '"':
-                        buf.append((char)c);
-                        nextc();
-                        break;
-                    case 'b':
-                        buf.append('\b');
-                        nextc();
-                        break;
-                    case 'f':
-                        buf.append('\f');
-                        nextc();
-                        break;
-                    case 'n':
-                        buf.append('\n');
-                        nextc();
-                        break;
-                    case 'r':
-                        buf.append('\r');
-                        nextc();
-                        break;
-                    case 't':
-                        buf.append('\t');
-                        nextc();
-                        break;
-                    case 'u':
-                        nextc();
-                        int val = hexDigit();
-                        val = 16*val + hexDigit();
-                        val = 16*val + hexDigit();
-                        val = 16*val + hexDigit();
-                        buf.append((char)val);
-                        break;
-                    default:
-                        throw new IOException("Invalid escape sequence");
-                }
-            } else if (c >= 32) {
-                buf.append((char)c);
-                nextc();
-            } else {
-                throw new IOException("Invalid character in string");
-            }
-        }
-        nextc();
-        sy = Symbol.STRING;
-        string = buf.toString();
-    }
-
-    private int hexDigit() throws IOException {
-        int result;
-        if (c >= '0' && c <= '9') {
-            result = c - '0';
-        } else if (c >= 'a' && c <= 'f') {
-            result = c - 'a' + 10;
-        } else if (c >= 'A' && c <= 'F') {
-            result = c - 'A' + 10;
-        } else {
-            throw new IOException("Hex digit expected");
-        }
-        nextc();
-        return result;
-    }
-
-    private void number(boolean neg) throws IOException {
-        StringBuilder buf = new StringBuilder();
-        if (neg) {
-            buf.append('-');
-        }
-        if (c == '0') {
-            buf.append('0');
-            nextc();
-        } else {
-            do {
-                buf.append((char)c);
-            } while (Character.isDigit(nextc()));
-        }
-        boolean hasFrac = c == '.';
-        if (hasFrac) {
-            buf.append('.');
-            nextc();
-            while (Character.isDigit(c)) {
-                buf.append((char)c);
-                nextc();
-            }
-        }
-        boolean hasExp = c == 'E' || c == 'e';
-        if (hasExp) {
-            buf.append('E');
-            nextc();
-            if (c == '+') {
-                nextc();
-            } else if (c == '-') {
-                buf.append('-');
-                nextc();
-            }
-            while (Character.isDigit(c)) {
-                buf.append((char)c);
-                nextc();
-            }
-        }
-        sy = Symbol.NUMBER;
-        String s = buf.toString();
-        if (hasExp) {
-            number = Double.valueOf(s);
-        } else if (hasFrac) {
-            number = new BigDecimal(s);
-        } else {
-            BigInteger bi = new BigInteger(s);
-            if (bi.compareTo(MIN_LONG) < 0 || bi.compareTo(MAX_LONG) > 0) {
-                number = bi;
-            } else {
-                long l = bi.longValue();
-                if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
-                    number = l;
-                } else {
-                    number = (int) l;
-                }
-            }
-        }
-    }
-
-    private void keyword() throws IOException {
-        StringBuilder buf = new StringBuilder();
-        do {
-            buf.append((char)c);
-        } while (Character.isJavaIdentifierPart(nextc()));
-        String id = buf.toString();
-        sy = KEYWORDS.get(id);
-        if (sy == null) {
-            throw new IOException("Invalid keyword " + id);
-        }
     }
 
     private void array() throws IOException {
@@ -306,6 +322,7 @@ public class JSonParser {
                 handler.startElement();
                 value();
                 handler.endElement();
+                nextsy();
                 if (sy != Symbol.COMMA) {
                     break;
                 }
@@ -319,6 +336,10 @@ public class JSonParser {
     }
 
     private void object() throws IOException {
+        if (charHandler != null) {
+            charObject();
+            return;
+        }
         handler.startObject();
         nextsy();
         if (sy != Symbol.RBRACE) {
@@ -326,7 +347,7 @@ public class JSonParser {
                 if (sy != Symbol.STRING) {
                     throw new IOException("String expected");
                 }
-                String field = string;
+                String field = lexer.charsValue().toString(symbols());
                 nextsy();
                 if (sy != Symbol.COLON) {
                     throw new IOException("':' expected");
@@ -335,6 +356,7 @@ public class JSonParser {
                 handler.startField(field);
                 value();
                 handler.endField(field);
+                nextsy();
                 if (sy != Symbol.COMMA) {
                     break;
                 }
@@ -346,4 +368,57 @@ public class JSonParser {
         }
         handler.endObject();
     }
+
+    /**
+     * Same as {@link #object()}, but field names are kept in a stack of
+     * chars rather than in Strings, so that they can still be passed to
+     * endField once the value has been parsed.
+     */
+    private void charObject() throws IOException {
+        charHandler.startObject();
+        nextsy();
+        if (sy != Symbol.RBRACE) {
+            while (true) {
+                if (sy != Symbol.STRING) {
+                    throw new IOException("String expected");
+                }
+                int start = namesLength;
+                pushName(lexer.charsValue());
+                nextsy();
+                if (sy != Symbol.COLON) {
+                    throw new IOException("':' expected");
+                }
+                nextsy();
+                charHandler.startField(
+                        name.reset(names, start, namesLength - start));
+                value();
+                charHandler.endField(
+                        name.reset(names, start, namesLength - start));
+                namesLength = start;
+                nextsy();
+                if (sy != Symbol.COMMA) {
+                    break;
+                }
+                nextsy();
+            }
+            if (sy != Symbol.RBRACE) {
+                throw new IOException("'}' expected");
+            }
+        }
+        charHandler.endObject();
+    }
+
+    private void pushName(CharSlice chars) {
+        int length = chars.length();
+        if (names == null) {
+            names = new char[Math.max(256, length)];
+        } else if (namesLength + length > names.length) {
+            char[] newNames = new char[
+                    Math.max(2*names.length, namesLength + length)];
+            System.arraycopy(names, 0, newNames, 0, namesLength);
+            names = newNames;
+        }
+        chars.getChars(0, length, names, namesLength);
+        namesLength += length;
+    }
 }
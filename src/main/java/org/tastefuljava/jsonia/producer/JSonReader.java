@@ -0,0 +1,370 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.producer.JSonLexer.Symbol;
+import org.tastefuljava.jsonia.util.Numbers;
+import org.tastefuljava.jsonia.util.SymbolTable;
+
+/**
+ * A pull parser: the caller asks for the tokens one at a time with
+ * {@link #nextToken()}, and can stop at any point by closing the reader.
+ */
+public class JSonReader implements Closeable {
+    public static enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME,
+        STRING, NUMBER, BOOLEAN, NULL, END
+    };
+
+    private static enum State {
+        VALUE, FIRST_ELEMENT, FIRST_FIELD, FIELD, AFTER_NAME, AFTER_VALUE,
+        DONE
+    };
+
+    private static final int READER_SYMBOLS = 256;
+
+    private final JSonLexer lexer;
+    private State state = State.VALUE;
+    private Token token;
+    private Symbol sy;
+    private boolean[] objects = new boolean[16];
+    private int depth;
+    private SymbolTable symbols;
+
+    public JSonReader(Reader in) {
+        this(new CharLexer(in));
+    }
+
+    public JSonReader(String json) {
+        this(new CharLexer(json));
+    }
+
+    /**
+     * Creates a reader for UTF-8 encoded input.
+     */
+    public JSonReader(InputStream in) {
+        this(new Utf8Lexer(in));
+    }
+
+    public JSonReader(byte[] data) {
+        this(new Utf8Lexer(data, 0, data.length));
+    }
+
+    public JSonReader(ByteBuffer data) {
+        this(Utf8Lexer.forBuffer(data));
+    }
+
+    JSonReader(JSonLexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * Sets the table from which field names are taken by
+     * {@link #getString()}.
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Releases the buffers of the reader. The underlying stream is not
+     * closed.
+     */
+    @Override
+    public void close() {
+        state = State.DONE;
+        lexer.close();
+    }
+
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the number of objects and arrays that enclose the current
+     * token; a start token counts as being inside its container.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Reads the next token. Returns {@link Token#END} once the top-level
+     * value has been read; nothing after it is read.
+     */
+    public Token nextToken() throws IOException {
+        switch (state) {
+            case VALUE:
+                nextsy();
+                return token = value();
+            case FIRST_ELEMENT:
+                nextsy();
+                if (sy == Symbol.RBRACKET) {
+                    return token = pop(Token.END_ARRAY);
+                }
+                return token = value();
+            case FIRST_FIELD:
+                nextsy();
+                if (sy == Symbol.RBRACE) {
+                    return token = pop(Token.END_OBJECT);
+                }
+                return token = fieldName();
+            case FIELD:
+                nextsy();
+                return token = fieldName();
+            case AFTER_NAME:
+                // the colon is only read now, to keep the name available
+                nextsy();
+                if (sy != Symbol.COLON) {
+                    throw new IOException("':' expected");
+                }
+                state = State.VALUE;
+                return nextToken();
+            case AFTER_VALUE:
+                return afterValue();
+            default:
+                return token = Token.END;
+        }
+    }
+
+    /**
+     * The state is updated after each symbol, so that reading can resume
+     * from there when a feeding lexer runs out of input.
+     */
+    private Token afterValue() throws IOException {
+        if (depth == 0) {
+            close();
+            return token = Token.END;
+        }
+        nextsy();
+        if (objects[depth-1]) {
+            if (sy == Symbol.COMMA) {
+                state = State.FIELD;
+                return nextToken();
+            } else if (sy != Symbol.RBRACE) {
+                throw new IOException("'}' expected");
+            }
+            return token = pop(Token.END_OBJECT);
+        } else {
+            if (sy == Symbol.COMMA) {
+                state = State.VALUE;
+                return nextToken();
+            } else if (sy != Symbol.RBRACKET) {
+                throw new IOException("']' expected");
+            }
+            return token = pop(Token.END_ARRAY);
+        }
+    }
+
+    private Token value() throws IOException {
+        state = State.AFTER_VALUE;
+        switch (sy) {
+            case NULL:
+                return Token.NULL;
+            case FALSE:
+            case TRUE:
+                return Token.BOOLEAN;
+            case STRING:
+                return Token.STRING;
+            case NUMBER:
+                return Token.NUMBER;
+            case LBRACKET:
+                push(false);
+                state = State.FIRST_ELEMENT;
+                return Token.START_ARRAY;
+            case LBRACE:
+                push(true);
+                state = State.FIRST_FIELD;
+                return Token.START_OBJECT;
+            case EOF:
+                throw new IOException("Unexpected end of file");
+            default:
+                throw new IOException("Unexpected symbol " + sy);
+        }
+    }
+
+    private Token fieldName() throws IOException {
+        if (sy != Symbol.STRING) {
+            throw new IOException("String expected");
+        }
+        state = State.AFTER_NAME;
+        return Token.FIELD_NAME;
+    }
+
+    private void push(boolean object) {
+        if (depth >= objects.length) {
+            boolean[] newObjects = new boolean[2*objects.length];
+            System.arraycopy(objects, 0, newObjects, 0, depth);
+            objects = newObjects;
+        }
+        objects[depth++] = object;
+    }
+
+    private Token pop(Token token) {
+        --depth;
+        state = State.AFTER_VALUE;
+        return token;
+    }
+
+    private void nextsy() throws IOException {
+        sy = lexer.nextsy();
+    }
+
+    /**
+     * Skips the current value: when the current token starts an object or
+     * an array, reads up to its end token; when it is a field name, skips
+     * the value of the field. Skipped strings and numbers are not
+     * converted.
+     */
+    public void skipValue() throws IOException {
+        if (token == Token.FIELD_NAME) {
+            nextToken();
+        }
+        if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+            int level = depth - 1;
+            lexer.skipping = true;
+            try {
+                while (depth > level) {
+                    nextToken();
+                }
+            } finally {
+                lexer.skipping = false;
+            }
+        }
+    }
+
+    /**
+     * Sends the events of the current value to the handler, as a
+     * {@link JSonParser} would; when the current token is a field name, the
+     * value of the field is read. The current token is then the last token
+     * of the value.
+     */
+    public void readValue(JSonHandler handler) throws IOException {
+        if (token == Token.FIELD_NAME) {
+            nextToken();
+        }
+        switch (token) {
+            case NULL:
+                handler.handleNull();
+                break;
+            case BOOLEAN:
+                handler.handleBoolean(sy == Symbol.TRUE);
+                break;
+            case STRING:
+                handler.handleString(lexer.stringValue());
+                break;
+            case NUMBER:
+                JSonParser.number(lexer, handler);
+                break;
+            case START_ARRAY:
+                handler.startArray();
+                while (nextToken() != Token.END_ARRAY) {
+                    handler.startElement();
+                    readValue(handler);
+                    handler.endElement();
+                }
+                handler.endArray();
+                break;
+            case START_OBJECT:
+                handler.startObject();
+                while (nextToken() != Token.END_OBJECT) {
+                    String name = getString();
+                    nextToken();
+                    handler.startField(name);
+                    readValue(handler);
+                    handler.endField(name);
+                }
+                handler.endObject();
+                break;
+            default:
+                throw new IllegalStateException("No value at " + token);
+        }
+    }
+
+    /**
+     * Returns the current string or field name as a view that is only valid
+     * until the next call to {@link #nextToken()}.
+     */
+    public CharSequence getCharSequence() {
+        switch (token) {
+            case STRING:
+            case FIELD_NAME:
+                return lexer.charsValue();
+            case NUMBER:
+                return lexer.tokenText();
+            default:
+                throw new IllegalStateException("No text for " + token);
+        }
+    }
+
+    public String getString() {
+        switch (token) {
+            case STRING:
+                return lexer.stringValue();
+            case FIELD_NAME:
+                if (symbols == null) {
+                    symbols = new SymbolTable(
+                            READER_SYMBOLS, SymbolTable.DEFAULT_MAX_LENGTH);
+                }
+                return lexer.charsValue().toString(symbols);
+            case NUMBER:
+                return lexer.tokenText().toString();
+            default:
+                throw new IllegalStateException("No text for " + token);
+        }
+    }
+
+    public boolean getBoolean() {
+        if (token != Token.BOOLEAN) {
+            throw new IllegalStateException("Not a boolean: " + token);
+        }
+        return sy == Symbol.TRUE;
+    }
+
+    public long getLong() {
+        checkNumber();
+        switch (lexer.numberKind()) {
+            case LONG:
+                return lexer.longValue();
+            case DOUBLE:
+                return (long)lexer.doubleValue();
+            default:
+                return lexer.numberValue().longValue();
+        }
+    }
+
+    public int getInt() {
+        return (int)getLong();
+    }
+
+    public double getDouble() {
+        checkNumber();
+        switch (lexer.numberKind()) {
+            case LONG:
+                return lexer.longValue();
+            case DOUBLE:
+                return lexer.doubleValue();
+            default:
+                return Numbers.parseDouble(lexer.tokenText());
+        }
+    }
+
+    /**
+     * Returns the current number as an Integer, a Long, a Double, a
+     * BigDecimal or a BigInteger, like {@link JSonParser} does.
+     */
+    public Number getNumber() {
+        checkNumber();
+        return lexer.numberValue();
+    }
+
+    private void checkNumber() {
+        if (token != Token.NUMBER) {
+            throw new IllegalStateException("Not a number: " + token);
+        }
+    }
+}
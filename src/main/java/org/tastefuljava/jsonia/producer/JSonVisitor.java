@@ -2,14 +2,21 @@ package org.tastefuljava.jsonia.producer;
 
 import org.tastefuljava.jsonia.util.Dates;
 import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Date;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.props.ClassCodec;
 import org.tastefuljava.jsonia.props.ClassDef;
 import org.tastefuljava.jsonia.props.PropertyDef;
+import org.tastefuljava.jsonia.util.LazyNumber;
 
 public class JSonVisitor {
     private final JSonHandler handler;
+    // passed to the codecs for the values of the fields
+    private final Consumer<Object> visitFunction = this::visit;
 
     public JSonVisitor(JSonHandler handler) {
         this.handler = handler;
@@ -21,7 +28,7 @@ public class JSonVisitor {
         } else if (object instanceof Boolean) {
             handler.handleBoolean((Boolean)object);
         } else if (object instanceof Number) {
-            handler.handleNumber(((Number)object).doubleValue());
+            visitNumber((Number)object);
         } else if (object instanceof String) {
             handler.handleString((String)object);
         } else if (object instanceof Date) {
@@ -35,12 +42,32 @@ public class JSonVisitor {
             } else if (Map.class.isAssignableFrom(clazz)) {
                 visitMap((Map<?,?>)object);
             } else {
-                ClassDef cdef = ClassDef.forClass(clazz);
-                visitObject(cdef, object);
+                ClassCodec codec = ClassCodec.forClass(clazz);
+                if (codec != null) {
+                    handler.startObject();
+                    codec.write(object, handler, visitFunction);
+                    handler.endObject();
+                } else {
+                    visitObject(ClassDef.forClass(clazz), object);
+                }
             }
         }
     }
 
+    private void visitNumber(Number number) {
+        if (number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte) {
+            handler.handleLong(number.longValue());
+        } else if (number instanceof BigDecimal) {
+            handler.handleDecimal(((BigDecimal)number).toPlainString());
+        } else if (number instanceof BigInteger
+                || number instanceof LazyNumber) {
+            handler.handleDecimal(number.toString());
+        } else {
+            handler.handleDouble(number.doubleValue());
+        }
+    }
+
     private void visitMap(Map<?, ?> map) {
         handler.startObject();
         for (Map.Entry<?,?> e: map.entrySet()) {
@@ -55,7 +82,13 @@ public class JSonVisitor {
     private void visitObject(ClassDef cdef, Object obj) {
         handler.startObject();
         for (PropertyDef prop: cdef.getProperties()) {
-            if (prop.canGet()) {
+            if (!prop.canGet()) {
+                // skip
+            } else if (prop.getKind() != PropertyDef.Kind.OBJECT) {
+                handler.startField(prop.getName());
+                visitPrimitive(prop, obj);
+                handler.endField(prop.getName());
+            } else {
                 Object value = prop.get(obj);
                 if (value != null) {
                     handler.startField(prop.getName());
@@ -67,6 +100,26 @@ public class JSonVisitor {
         handler.endObject();
     }
 
+    /**
+     * Visits a property of a primitive kind without boxing its value.
+     */
+    private void visitPrimitive(PropertyDef prop, Object obj) {
+        switch (prop.getKind()) {
+            case BOOLEAN:
+                handler.handleBoolean(prop.getBoolean(obj));
+                break;
+            case INT:
+                handler.handleLong(prop.getInt(obj));
+                break;
+            case LONG:
+                handler.handleLong(prop.getLong(obj));
+                break;
+            default:
+                handler.handleDouble(prop.getDouble(obj));
+                break;
+        }
+    }
+
     private void visitCollection(Iterable<?> col) {
         handler.startArray();
         for (Object elm: col) {
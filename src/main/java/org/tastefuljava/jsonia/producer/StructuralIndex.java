@@ -0,0 +1,238 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The offsets of the structural characters of a UTF-8 document, after the
+ * first stage of simdjson (Langdale and Lemire, Parsing Gigabytes of JSON
+ * per Second, 2019), computed on 64-bit words instead of SIMD registers.
+ * The structurals are the brackets, braces, colons and commas outside of
+ * strings, the opening quotes of strings, and the first characters of
+ * numbers and keywords.
+ * <p>
+ * The index is used to skip over values without reading them, and to split
+ * a document between threads. Without SIMD, building it costs about half of
+ * a parse by the byte lexer, so a second stage that parses the whole
+ * document from the index would be slower than the lexer alone (see
+ * StructuralIndexBenchmark in the tests); values are parsed from their
+ * offsets by {@link JSonParser}.
+ */
+public class StructuralIndex {
+    private static final int BLOCK_SIZE = 64;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    final byte[] data;
+    final int start;
+    final int end;
+    private int[] offsets;
+    private int size;
+    private boolean escapeCarry;
+    private long inStringCarry;
+    private long scalarCarry;
+
+    private StructuralIndex(byte[] data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        this.offsets = new int[Math.max(16, (end - start)/8)];
+    }
+
+    public static StructuralIndex build(byte[] data) throws IOException {
+        return build(data, 0, data.length);
+    }
+
+    public static StructuralIndex build(byte[] data, int offset, int length)
+            throws IOException {
+        StructuralIndex index
+                = new StructuralIndex(data, offset, offset + length);
+        index.scan();
+        if (index.inStringCarry != 0) {
+            throw new IOException("End of file in string");
+        }
+        if (index.offsets.length - index.size > index.size/4) {
+            // the index may be kept as long as the document
+            index.offsets = Arrays.copyOf(index.offsets, index.size);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes a chunk of a document that is read piece by piece; previous
+     * is the index of the chunk before, or null for the first one. The
+     * strings and escapes that straddle two chunks are taken into account,
+     * provided that the length of all the chunks but the last is a
+     * multiple of 64. A string that is not closed is not reported.
+     */
+    public static StructuralIndex buildChunk(byte[] data, int offset,
+            int length, StructuralIndex previous) {
+        StructuralIndex index
+                = new StructuralIndex(data, offset, offset + length);
+        if (previous != null) {
+            index.escapeCarry = previous.escapeCarry;
+            index.inStringCarry = previous.inStringCarry;
+            index.scalarCarry = previous.scalarCarry;
+        }
+        index.scan();
+        return index;
+    }
+
+    /**
+     * Returns the number of structural characters.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset in the data of the i-th structural character.
+     */
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Returns the i-th structural character.
+     */
+    public byte byteAt(int i) {
+        return data[offsets[i]];
+    }
+
+    /**
+     * Returns the index of the structural character that follows the value
+     * starting at the i-th one; when it is an object or an array, its
+     * content is skipped without being read.
+     */
+    public int skip(int i) {
+        int depth = 0;
+        do {
+            switch (data[offsets[i++]]) {
+                case '{':
+                case '[':
+                    ++depth;
+                    break;
+                case '}':
+                case ']':
+                    --depth;
+                    break;
+            }
+        } while (depth > 0 && i < size);
+        return i;
+    }
+
+    private void scan() {
+        ByteBuffer words = ByteBuffer.wrap(data)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer padded = ByteBuffer.allocate(BLOCK_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        boolean escapeCarry = this.escapeCarry;
+        long inStringCarry = this.inStringCarry;
+        long scalarCarry = this.scalarCarry;
+        for (int block = start; block < end; block += BLOCK_SIZE) {
+            ByteBuffer src = words;
+            int base = block;
+            if (end - block < BLOCK_SIZE) {
+                // the last block is padded with blanks
+                byte[] tail = padded.array();
+                System.arraycopy(data, block, tail, 0, end - block);
+                Arrays.fill(tail, end - block, BLOCK_SIZE, (byte)' ');
+                src = padded;
+                base = 0;
+            }
+            long quotes = 0;
+            long backslashes = 0;
+            long structurals = 0;
+            long blanks = 0;
+            for (int k = 0; k < BLOCK_SIZE/8; ++k) {
+                long w = src.getLong(base + 8*k);
+                int shift = 8*k;
+                quotes |= moveMask(equal(w, '"')) << shift;
+                backslashes |= moveMask(equal(w, '\\')) << shift;
+                // '[' and ']' differ from '{' and '}' only by bit 5
+                long lower = w | 0x2020202020202020L;
+                structurals |= moveMask(equal(lower, '{') | equal(lower, '}')
+                        | equal(w, ':') | equal(w, ',')) << shift;
+                long blank = below(w, '!');
+                long control = below(w, ' ');
+                if (control != 0) {
+                    // the other control characters are left to the lexer,
+                    // which rejects them
+                    blank &= ~control | equal(w, '\t') | equal(w, '\n')
+                            | equal(w, '\r');
+                }
+                blanks |= moveMask(blank) << shift;
+            }
+            // characters preceded by an odd number of backslashes
+            long escaped = 0;
+            long bs = backslashes;
+            if (escapeCarry) {
+                escaped = 1;
+                bs &= ~1L;
+            }
+            escapeCarry = false;
+            while (bs != 0) {
+                long bit = bs & -bs;
+                if (bit == Long.MIN_VALUE) {
+                    escapeCarry = true;
+                }
+                escaped |= bit << 1;
+                bs &= ~(bit | bit << 1);
+            }
+            long unescaped = quotes & ~escaped;
+            // prefix xor: the opening quote and the content of strings
+            long inString = unescaped;
+            inString ^= inString << 1;
+            inString ^= inString << 2;
+            inString ^= inString << 4;
+            inString ^= inString << 8;
+            inString ^= inString << 16;
+            inString ^= inString << 32;
+            inString ^= inStringCarry;
+            inStringCarry = inString >> 63;
+            long scalars = ~(structurals | blanks | quotes | inString);
+            long scalarStarts = scalars & ~(scalars << 1 | scalarCarry);
+            scalarCarry = scalars >>> 63;
+            long bits = structurals & ~inString | unescaped & inString
+                    | scalarStarts;
+            if (size + BLOCK_SIZE > offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2*offsets.length + BLOCK_SIZE);
+            }
+            int[] offs = offsets;
+            int n = size;
+            while (bits != 0) {
+                offs[n++] = block + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+            size = n;
+        }
+        this.escapeCarry = escapeCarry;
+        this.inStringCarry = inStringCarry;
+        this.scalarCarry = scalarCarry;
+    }
+
+    /**
+     * Returns a word with the high bit of each byte of w that equals c set.
+     */
+    private static long equal(long w, char c) {
+        long t = w ^ (c*ONES);
+        return ~((t & LOW7) + LOW7 | t | LOW7);
+    }
+
+    /**
+     * Returns a word with the high bit of each byte of w that is below c
+     * set; c must be at most 0x80.
+     */
+    private static long below(long w, char c) {
+        return ~((w & LOW7) + (0x80 - c)*ONES | w) & ~LOW7;
+    }
+
+    /**
+     * Gathers the high bits of the bytes of x into the low byte.
+     */
+    private static long moveMask(long x) {
+        return ((x >>> 7) * 0x0102040810204080L) >>> 56;
+    }
+}
@@ -0,0 +1,198 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+class Utf8Lexer extends ByteLexer {
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+    private static final Underflow UNDERFLOW = new Underflow();
+
+    private final InputStream in;
+    private final boolean pooled;
+    private final boolean feeding;
+    private boolean ended;
+    private byte[] buf;
+    // the token that ran out of input, and how far its end was searched
+    private long pending = -1;
+    private int scanned;
+    private boolean escaped;
+
+    Utf8Lexer(InputStream in) {
+        this.in = in;
+        this.pooled = true;
+        this.feeding = false;
+        this.buf = acquireBuffer();
+    }
+
+    Utf8Lexer(byte[] data, int offset, int length) {
+        this.in = null;
+        this.pooled = false;
+        this.feeding = false;
+        this.buf = data;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.mark = offset;
+        this.base = -offset;
+    }
+
+    /**
+     * Creates a lexer for a buffer that has an accessible array.
+     */
+    Utf8Lexer(ByteBuffer data) {
+        this.in = null;
+        this.pooled = false;
+        this.feeding = false;
+        this.buf = data.array();
+        this.pos = data.arrayOffset() + data.position();
+        this.limit = data.arrayOffset() + data.limit();
+        this.mark = pos;
+        this.base = -pos;
+    }
+
+    /**
+     * Returns a lexer that reads the array of a heap buffer, or that scans
+     * a direct buffer in place.
+     */
+    static JSonLexer forBuffer(ByteBuffer data) {
+        return data.hasArray() ? new Utf8Lexer(data) : new BufferLexer(data);
+    }
+
+    /**
+     * Creates a lexer for input that is passed to {@link #feed} as it
+     * arrives. When the input runs out in the middle of a token, an
+     * {@link Underflow} is thrown; the lexer must then be moved back to the
+     * start of the token with {@link #rewind()}, and the token is read
+     * again once {@link #ready()} tells that more input may complete it.
+     */
+    Utf8Lexer() {
+        this.in = null;
+        this.pooled = false;
+        this.feeding = true;
+        this.buf = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer to the input.
+     */
+    void feed(ByteBuffer data) {
+        int count = data.remaining();
+        if (mark > 0) {
+            base += mark;
+            System.arraycopy(buf, mark, buf, 0, limit - mark);
+            pos -= mark;
+            limit -= mark;
+            scanned -= mark;
+            mark = 0;
+        }
+        if (limit + count > buf.length) {
+            byte[] newBuf = new byte[Math.max(2*buf.length, limit + count)];
+            System.arraycopy(buf, 0, newBuf, 0, limit);
+            buf = newBuf;
+        }
+        data.get(buf, limit, count);
+        limit += count;
+    }
+
+    void endOfInput() {
+        ended = true;
+    }
+
+    /**
+     * Tells whether the input fed so far may complete the token that ran
+     * out of input. Only the bytes fed since the last call are searched for
+     * its end, so that a long token is not read again on every feed.
+     */
+    boolean ready() {
+        if (pending != base + mark) {
+            return true;
+        }
+        boolean string = buf[mark] == '"';
+        for (int i = scanned; i < limit; ++i) {
+            int c = buf[i];
+            if (string) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    pending = -1;
+                    return true;
+                }
+            } else if (!isDigit(c) && !isLetter(c)
+                    && c != '.' && c != '+' && c != '-') {
+                pending = -1;
+                return true;
+            }
+        }
+        scanned = limit;
+        return false;
+    }
+
+    @Override
+    void close() {
+        if (pooled && buf != null) {
+            releaseBuffer(buf);
+        }
+        buf = null;
+    }
+
+    private static byte[] acquireBuffer() {
+        byte[] result = BUFFERS.get();
+        if (result == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        // a nested parse on the same thread gets its own buffer
+        BUFFERS.set(null);
+        return result;
+    }
+
+    private static void releaseBuffer(byte[] buffer) {
+        if (buffer.length <= MAX_POOLED_SIZE) {
+            BUFFERS.set(buffer);
+        }
+    }
+
+    @Override
+    final byte byteAt(int index) {
+        return buf[index];
+    }
+
+    @Override
+    final boolean fill() throws IOException {
+        if (feeding) {
+            if (!ended) {
+                if (mark >= limit) {
+                    pending = -1;
+                } else if (pending != base + mark) {
+                    pending = base + mark;
+                    scanned = mark + 1;
+                    escaped = false;
+                }
+                throw UNDERFLOW;
+            }
+            return false;
+        } else if (!pooled) {
+            return false;
+        }
+        int keep = limit - mark;
+        if (mark > 0) {
+            base += mark;
+            System.arraycopy(buf, mark, buf, 0, keep);
+            pos -= mark;
+            mark = 0;
+            limit = keep;
+        } else if (limit == buf.length) {
+            byte[] newBuf = new byte[2*buf.length];
+            System.arraycopy(buf, 0, newBuf, 0, limit);
+            buf = newBuf;
+        }
+        int count = in.read(buf, limit, buf.length - limit);
+        if (count <= 0) {
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+}
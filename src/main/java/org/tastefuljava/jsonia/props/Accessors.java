@@ -0,0 +1,219 @@
+package org.tastefuljava.jsonia.props;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.tastefuljava.jsonia.props.PropertyDef.Kind;
+
+/**
+ * Creates the accessors of the properties: functions generated with the
+ * LambdaMetafactory for getters and setters, method handles for fields.
+ * Each method returns null when the member cannot be accessed that way, in
+ * which case reflection is used instead.
+ */
+final class Accessors {
+    private static final Logger LOG
+            = Logger.getLogger(Accessors.class.getName());
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType OBJECT_GETTER
+            = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType OBJECT_SETTER
+            = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private Accessors() {
+    }
+
+    /**
+     * Returns a Function for a getter of kind OBJECT, or a ToIntFunction,
+     * a ToLongFunction, a ToDoubleFunction or a Predicate for the other
+     * kinds.
+     */
+    static Object getter(Method method, Kind kind) {
+        if (method.getReturnType() == void.class) {
+            return null;
+        }
+        switch (kind) {
+            case BOOLEAN:
+                return function(method, Predicate.class, "test",
+                        MethodType.methodType(boolean.class, Object.class));
+            case INT:
+                return function(method, ToIntFunction.class, "applyAsInt",
+                        MethodType.methodType(int.class, Object.class));
+            case LONG:
+                return function(method, ToLongFunction.class, "applyAsLong",
+                        MethodType.methodType(long.class, Object.class));
+            case DOUBLE:
+                return function(method, ToDoubleFunction.class,
+                        "applyAsDouble",
+                        MethodType.methodType(double.class, Object.class));
+            default:
+                return function(method, Function.class, "apply",
+                        OBJECT_GETTER);
+        }
+    }
+
+    /**
+     * Returns an ObjIntConsumer, an ObjLongConsumer or an ObjDoubleConsumer
+     * for a setter of these kinds, or a BiConsumer for the others.
+     */
+    static Object setter(Method method, Kind kind) {
+        switch (kind) {
+            case INT:
+                return function(method, ObjIntConsumer.class, "accept",
+                        MethodType.methodType(
+                                void.class, Object.class, int.class));
+            case LONG:
+                return function(method, ObjLongConsumer.class, "accept",
+                        MethodType.methodType(
+                                void.class, Object.class, long.class));
+            case DOUBLE:
+                return function(method, ObjDoubleConsumer.class, "accept",
+                        MethodType.methodType(
+                                void.class, Object.class, double.class));
+            default:
+                return function(method, BiConsumer.class, "accept",
+                        OBJECT_SETTER);
+        }
+    }
+
+    /**
+     * Returns a method handle of type (Object)Object for a field of kind
+     * OBJECT, or with the primitive type as return type for the others.
+     */
+    static MethodHandle getter(Field field, Kind kind) {
+        try {
+            return LOOKUP.unreflectGetter(field).asType(
+                    MethodType.methodType(erased(field.getType(), kind),
+                            Object.class));
+        } catch (IllegalAccessException ex) {
+            LOG.log(Level.FINE, "No method handle for " + field, ex);
+            return null;
+        }
+    }
+
+    static MethodHandle setter(Field field, Kind kind) {
+        try {
+            return LOOKUP.unreflectSetter(field).asType(
+                    MethodType.methodType(void.class, Object.class,
+                            erased(field.getType(), kind)));
+        } catch (IllegalAccessException ex) {
+            // final fields can only be set with reflection
+            LOG.log(Level.FINE, "No method handle for " + field, ex);
+            return null;
+        }
+    }
+
+    private static Class<?> erased(Class<?> type, Kind kind) {
+        return kind == Kind.OBJECT ? Object.class : type;
+    }
+
+    /**
+     * Generates an instance of a functional interface whose method, of the
+     * given erased type, calls the method; returns null on failure.
+     */
+    private static Object function(Method method, Class<?> intf,
+            String name, MethodType erased) {
+        if (!isLinkable(method)) {
+            return null;
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            MethodType type = handle.type();
+            MethodType instantiated = MethodType.methodType(
+                    erased.returnType() == Object.class
+                            ? boxed(type.returnType()) : erased.returnType(),
+                    type.parameterType(0));
+            for (int i = 1; i < erased.parameterCount(); ++i) {
+                instantiated = instantiated.appendParameterTypes(
+                        erased.parameterType(i) == Object.class
+                                ? boxed(type.parameterType(i))
+                                : type.parameterType(i));
+            }
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, name,
+                    MethodType.methodType(intf), erased, handle,
+                    instantiated);
+            return site.getTarget().invoke();
+        } catch (Throwable ex) {
+            LOG.log(Level.FINE, "No function for " + method, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether a generated function can call the method: the classes
+     * it refers to must be public, and visible from the class loader of
+     * this library, in which the function is defined.
+     */
+    private static boolean isLinkable(Method method) {
+        if (!isLinkable(method.getDeclaringClass())
+                || !isLinkable(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> type: method.getParameterTypes()) {
+            if (!isLinkable(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLinkable(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> cl = clazz; cl != null; cl = cl.getDeclaringClass()) {
+            if (!Modifier.isPublic(cl.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(clazz.getName(), false,
+                    Accessors.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        } else {
+            return Void.class;
+        }
+    }
+}
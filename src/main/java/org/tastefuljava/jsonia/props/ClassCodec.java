@@ -0,0 +1,141 @@
+package org.tastefuljava.jsonia.props;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.tastefuljava.jsonia.JSonCodec;
+import org.tastefuljava.jsonia.JSonHandler;
+
+/**
+ * Reads and writes the properties of the objects of a class with code
+ * specialized for that class. The subclasses are either generated at run
+ * time by {@link CodecGenerator}, where public fields and public accessors
+ * are accessed directly and other properties through their
+ * {@link PropertyDef}, or generated at compile time for the classes
+ * annotated with {@link JSonCodec}. Properties are designated by their
+ * index.
+ */
+public abstract class ClassCodec {
+    private static final Logger LOG
+            = Logger.getLogger(ClassCodec.class.getName());
+    private static final ClassValue<Optional<ClassCodec>> COMPILED
+            = new ClassValue<Optional<ClassCodec>>() {
+        @Override
+        protected Optional<ClassCodec> computeValue(Class<?> clazz) {
+            return Optional.ofNullable(loadCompiled(clazz));
+        }
+    };
+
+    protected final PropertyDef[] props;
+
+    /**
+     * The properties of a codec generated at compile time are created with
+     * {@link #property(String, Class, boolean, boolean)}, and are accessed
+     * through the codec.
+     */
+    protected ClassCodec(PropertyDef[] props) {
+        this.props = props;
+        for (int i = 0; i < props.length; ++i) {
+            if (props[i] instanceof CodecProperty) {
+                ((CodecProperty)props[i]).attach(this, i);
+            }
+        }
+    }
+
+    /**
+     * Returns the codec of a class: the one generated at compile time if
+     * the class is annotated with {@link JSonCodec}, otherwise the one of
+     * its {@link ClassDef}, if any.
+     */
+    public static ClassCodec forClass(Class<?> clazz) {
+        ClassCodec codec = COMPILED.get(clazz).orElse(null);
+        return codec != null ? codec : ClassDef.forClass(clazz).getCodec();
+    }
+
+    /**
+     * Returns the name of the codec generated at compile time for a class,
+     * given its binary name: it is in the same package, and its simple
+     * name is made of the names of the class and of its enclosing classes
+     * followed by "_JSonCodec", separated by underscores.
+     */
+    public static String compiledName(String binaryName) {
+        return binaryName.replace('$', '_') + "_JSonCodec";
+    }
+
+    protected static PropertyDef property(String name, Class<?> type,
+            boolean canGet, boolean canSet) {
+        return new CodecProperty(name, type, canGet, canSet);
+    }
+
+    private static ClassCodec loadCompiled(Class<?> clazz) {
+        if (!clazz.isAnnotationPresent(JSonCodec.class)) {
+            return null;
+        }
+        String name = compiledName(clazz.getName());
+        try {
+            return (ClassCodec)Class.forName(name, true,
+                    clazz.getClassLoader()).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException
+                | LinkageError ex) {
+            // a codec that is missing or broken is replaced by the ClassDef
+            LOG.log(Level.WARNING, "Cannot load codec " + name, ex);
+            return null;
+        }
+    }
+
+    public PropertyDef getProperty(int index) {
+        return props[index];
+    }
+
+    /**
+     * Returns a new object, or null when the class has no public
+     * constructor without parameters.
+     */
+    public Object newInstance() {
+        return null;
+    }
+
+    /**
+     * Sends the fields of an object to the handler, as
+     * {@link org.tastefuljava.jsonia.producer.JSonVisitor} does; the values
+     * that are not numbers, booleans or strings are passed to the visitor.
+     * The object itself is not started nor ended.
+     */
+    public abstract void write(Object object, JSonHandler handler,
+            Consumer<Object> visitor);
+
+    /**
+     * Returns the index of a property, or -1 if the class has no such
+     * property.
+     */
+    public abstract int indexOf(String name);
+
+    public Object get(Object object, int index) {
+        return props[index].get(object);
+    }
+
+    public abstract void set(Object object, int index, Object value);
+
+    /**
+     * Sets a property of kind INT or LONG.
+     */
+    public void setLong(Object object, int index, long value) {
+        props[index].setLong(object, value);
+    }
+
+    /**
+     * Sets a property of kind DOUBLE.
+     */
+    public void setDouble(Object object, int index, double value) {
+        props[index].setDouble(object, value);
+    }
+
+    /**
+     * Sets a property of kind BOOLEAN.
+     */
+    public void setBoolean(Object object, int index, boolean value) {
+        props[index].setBoolean(object, value);
+    }
+}
@@ -3,32 +3,99 @@ package org.tastefuljava.jsonia.props;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ClassDef<T> {
     private static final Logger LOG
             = Logger.getLogger(FieldProperty.class.getName());
-    private static final Map<Class<?>,ClassDef> CLASSES = new HashMap<>();
+    /**
+     * The definitions are attached to their classes, which can still be
+     * unloaded. Two threads may introspect a class at the same time, but
+     * only one of the definitions is ever returned.
+     */
+    private static final ClassValue<ClassDef<?>> CLASSES
+            = new ClassValue<ClassDef<?>>() {
+        @Override
+        protected ClassDef<?> computeValue(Class<?> clazz) {
+            return new ClassDef<>(clazz);
+        }
+    };
+
+    /**
+     * Codecs are generated for all classes when the system property
+     * org.tastefuljava.jsonia.codecs is true, otherwise only for the classes
+     * passed to {@link #generateCodecs(Class...)}.
+     */
+    private static final boolean CODECS
+            = Boolean.getBoolean("org.tastefuljava.jsonia.codecs");
 
     private final Class<T> clazz;
     private final Map<String,PropertyDef> props = new LinkedHashMap<>();
+    private final PropertyDef[] propArray;
+    private volatile ClassCodec codec;
+    private volatile boolean codecDone;
 
     public static <T> ClassDef<T> forClass(Class<T> clazz) {
-        ClassDef<T> def = CLASSES.get(clazz);
-        if (def == null) {
-            def = new ClassDef(clazz);
-            CLASSES.put(clazz, def);
+        return (ClassDef<T>)CLASSES.get(clazz);
+    }
+
+    /**
+     * Introspects classes ahead of their first use, with the classes of
+     * their properties and the components of their array properties, so
+     * that it is not done while reading or writing.
+     */
+    public static void preload(Class<?>... classes) {
+        Set<Class<?>> done = new HashSet<>();
+        Deque<Class<?>> todo = new ArrayDeque<>(Arrays.asList(classes));
+        while (!todo.isEmpty()) {
+            Class<?> clazz = todo.pop();
+            while (clazz.isArray()) {
+                clazz = clazz.getComponentType();
+            }
+            if (isBean(clazz) && done.add(clazz)) {
+                for (PropertyDef prop: forClass(clazz).getProperties()) {
+                    todo.push(prop.getType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates the codecs of classes, whether codecs are enabled or not.
+     * Returns false if a codec could not be generated for one of them, in
+     * which case it is read and written with reflection.
+     */
+    public static boolean generateCodecs(Class<?>... classes) {
+        boolean result = true;
+        for (Class<?> clazz: classes) {
+            result &= forClass(clazz).generateCodec() != null;
         }
-        return def;
+        return result;
+    }
+
+    /**
+     * Tells whether a class is bound by its properties, rather than being a
+     * primitive, a collection or a class of the JDK.
+     */
+    private static boolean isBean(Class<?> clazz) {
+        return !clazz.isPrimitive() && !clazz.isInterface()
+                && !clazz.isEnum() && !Map.class.isAssignableFrom(clazz)
+                && !Iterable.class.isAssignableFrom(clazz)
+                && !clazz.getName().startsWith("java.");
     }
 
     private ClassDef(Class<T> clazz) {
         this.clazz = clazz;
         extractProps();
+        this.propArray = props.values().toArray(new PropertyDef[props.size()]);
     }
 
     public Class<T> getJavaClass() {
@@ -52,8 +119,31 @@ public class ClassDef<T> {
         return props.get(name);
     }
 
+    /**
+     * Returns the properties in a shared array, which must not be modified.
+     */
     public PropertyDef[] getProperties() {
-        return props.values().toArray(new PropertyDef[props.size()]);
+        return propArray;
+    }
+
+    /**
+     * Returns the codec of the class, or null if codecs are not enabled for
+     * it or cannot be generated.
+     */
+    public ClassCodec getCodec() {
+        return codecDone || CODECS ? generateCodec() : null;
+    }
+
+    private ClassCodec generateCodec() {
+        if (!codecDone) {
+            synchronized(this) {
+                if (!codecDone) {
+                    codec = CodecGenerator.generate(this);
+                    codecDone = true;
+                }
+            }
+        }
+        return codec;
     }
 
     private void extractFieldProps() {
@@ -112,8 +202,8 @@ public class ClassDef<T> {
                     Class<?> retType = method.getReturnType();
                     if (retType == boolean.class
                             || retType == Boolean.class) {
-                        propName = Character.toLowerCase(name.charAt(3))
-                                + name.substring(4);
+                        propName = Character.toLowerCase(name.charAt(2))
+                                + name.substring(3);
                     }
                 }
                 if (propName != null && !getters.containsKey(propName)) {
@@ -0,0 +1,395 @@
+package org.tastefuljava.jsonia.props;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer of class files, for the classes generated by
+ * {@link CodecGenerator}. The version is 49 (Java 5), so that no stack map
+ * frames are needed: the JVM verifies such classes by type inference.
+ * Classes have no fields and no attributes other than the code of their
+ * methods.
+ */
+final class ClassFile {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+    private static final int MAX_CODE_SIZE = 65535;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final int access;
+    private final int thisClass;
+    private final int superClass;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String,Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+    private final List<Code> methods = new ArrayList<>();
+
+    ClassFile(int access, String name, String superName) {
+        this.access = access;
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+    }
+
+    /**
+     * Starts a method; its code is written to the returned object.
+     */
+    Code method(int access, String name, String desc, int maxStack,
+            int maxLocals) {
+        Code code = new Code(access, utf8(name), utf8(desc), maxStack,
+                maxLocals);
+        methods.add(code);
+        return code;
+    }
+
+    byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int codeAttribute = utf8("Code");
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (Code code: methods) {
+                byte[] bytecode = code.toByteArray();
+                out.writeShort(code.access);
+                out.writeShort(code.name);
+                out.writeShort(code.desc);
+                out.writeShort(1);
+                out.writeShort(codeAttribute);
+                out.writeInt(12 + bytecode.length);
+                out.writeShort(code.maxStack);
+                out.writeShort(code.maxLocals);
+                out.writeInt(bytecode.length);
+                out.write(bytecode);
+                out.writeShort(0); // exception table
+                out.writeShort(0); // attributes
+            }
+            out.writeShort(0); // attributes
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // cannot happen with a ByteArrayOutputStream
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    int utf8(String value) {
+        String key = "U" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            try {
+                poolOut.writeByte(CONSTANT_UTF8);
+                poolOut.writeUTF(value);
+            } catch (IOException ex) {
+                // cannot happen with a ByteArrayOutputStream
+                throw new IllegalStateException(ex);
+            }
+            index = add(key, 1);
+        }
+        return index;
+    }
+
+    int integer(int value) {
+        String key = "I" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            write(CONSTANT_INTEGER, value >>> 16, value & 0xFFFF);
+            index = add(key, 1);
+        }
+        return index;
+    }
+
+    int classRef(String internalName) {
+        return ref("C", CONSTANT_CLASS, internalName);
+    }
+
+    int string(String value) {
+        return ref("S", CONSTANT_STRING, value);
+    }
+
+    int fieldRef(String owner, String name, String desc) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, desc);
+    }
+
+    int methodRef(String owner, String name, String desc) {
+        return memberRef(CONSTANT_METHODREF, owner, name, desc);
+    }
+
+    int interfaceMethodRef(String owner, String name, String desc) {
+        return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, desc);
+    }
+
+    private int ref(String prefix, int tag, String value) {
+        String key = prefix + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int utf8 = utf8(value);
+            write(tag, utf8);
+            index = add(key, 1);
+        }
+        return index;
+    }
+
+    private int memberRef(int tag, String owner, String name, String desc) {
+        String key = tag + owner + "." + name + ":" + desc;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, desc);
+            write(tag, ownerIndex, nameAndType);
+            index = add(key, 1);
+        }
+        return index;
+    }
+
+    private int nameAndType(String name, String desc) {
+        String key = "N" + name + ":" + desc;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            write(CONSTANT_NAME_AND_TYPE, nameIndex, descIndex);
+            index = add(key, 1);
+        }
+        return index;
+    }
+
+    private void write(int tag, int... shorts) {
+        pool.write(tag);
+        for (int value: shorts) {
+            pool.write(value >>> 8);
+            pool.write(value);
+        }
+    }
+
+    private int add(String key, int size) {
+        int index = poolCount;
+        poolCount += size;
+        if (poolCount > 0xFFFF) {
+            throw new IllegalStateException("Constant pool overflow");
+        }
+        constants.put(key, index);
+        return index;
+    }
+
+    /**
+     * A position in the code of a method, the target of jumps.
+     */
+    static final class Label {
+        private int position = -1;
+    }
+
+    /**
+     * The code of a method. Jumps to labels that are not yet placed are
+     * patched when the labels are.
+     */
+    final class Code {
+        private final int access;
+        private final int name;
+        private final int desc;
+        private final int maxStack;
+        private final int maxLocals;
+        private byte[] bytes = new byte[256];
+        private int length;
+        // for each jump: the position of the instruction, of its offset,
+        // the size of the offset and the label
+        private final List<Object[]> fixups = new ArrayList<>();
+
+        private Code(int access, int name, int desc, int maxStack,
+                int maxLocals) {
+            this.access = access;
+            this.name = name;
+            this.desc = desc;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        void op(int opcode) {
+            put(opcode);
+        }
+
+        /**
+         * Writes an instruction that refers to a local variable.
+         */
+        void local(int opcode, int index) {
+            put(opcode);
+            put(index);
+        }
+
+        void push(int value) {
+            if (value >= -1 && value <= 5) {
+                put(0x03 + value); // iconst_<n>
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                put(0x10); // bipush
+                put(value);
+            } else if (value >= Short.MIN_VALUE
+                    && value <= Short.MAX_VALUE) {
+                put(0x11); // sipush
+                putShort(value);
+            } else {
+                ldc(integer(value));
+            }
+        }
+
+        void ldc(String value) {
+            ldc(string(value));
+        }
+
+        private void ldc(int index) {
+            if (index < 256) {
+                put(0x12); // ldc
+                put(index);
+            } else {
+                put(0x13); // ldc_w
+                putShort(index);
+            }
+        }
+
+        void type(int opcode, String internalName) {
+            put(opcode);
+            putShort(classRef(internalName));
+        }
+
+        void field(int opcode, String owner, String name, String desc) {
+            put(opcode);
+            putShort(fieldRef(owner, name, desc));
+        }
+
+        void invoke(int opcode, String owner, String name, String desc) {
+            put(opcode);
+            putShort(methodRef(owner, name, desc));
+        }
+
+        void invokeInterface(String owner, String name, String desc,
+                int argSlots) {
+            put(0xB9); // invokeinterface
+            putShort(interfaceMethodRef(owner, name, desc));
+            put(argSlots + 1);
+            put(0);
+        }
+
+        void jump(int opcode, Label label) {
+            int start = length;
+            put(opcode);
+            fixup(start, 2, label);
+            putShort(0);
+        }
+
+        void mark(Label label) {
+            label.position = length;
+        }
+
+        void tableSwitch(int low, Label dflt, Label[] labels) {
+            int start = length;
+            put(0xAA); // tableswitch
+            align();
+            fixup(start, 4, dflt);
+            putInt(0);
+            putInt(low);
+            putInt(low + labels.length - 1);
+            for (Label label: labels) {
+                fixup(start, 4, label);
+                putInt(0);
+            }
+        }
+
+        /**
+         * Writes a lookupswitch; the keys must be sorted.
+         */
+        void lookupSwitch(Label dflt, int[] keys, Label[] labels) {
+            int start = length;
+            put(0xAB); // lookupswitch
+            align();
+            fixup(start, 4, dflt);
+            putInt(0);
+            putInt(keys.length);
+            for (int i = 0; i < keys.length; ++i) {
+                putInt(keys[i]);
+                fixup(start, 4, labels[i]);
+                putInt(0);
+            }
+        }
+
+        private byte[] toByteArray() {
+            for (Object[] fixup: fixups) {
+                int start = (Integer)fixup[0];
+                int pos = (Integer)fixup[1];
+                int size = (Integer)fixup[2];
+                Label label = (Label)fixup[3];
+                if (label.position < 0) {
+                    throw new IllegalStateException("Label not placed");
+                }
+                int offset = label.position - start;
+                if (size == 2) {
+                    if (offset < Short.MIN_VALUE
+                            || offset > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Jump too far");
+                    }
+                    bytes[pos] = (byte)(offset >> 8);
+                    bytes[pos + 1] = (byte)offset;
+                } else {
+                    bytes[pos] = (byte)(offset >> 24);
+                    bytes[pos + 1] = (byte)(offset >> 16);
+                    bytes[pos + 2] = (byte)(offset >> 8);
+                    bytes[pos + 3] = (byte)offset;
+                }
+            }
+            if (length > MAX_CODE_SIZE) {
+                throw new IllegalStateException("Method too large");
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private void fixup(int start, int size, Label label) {
+            fixups.add(new Object[] {start, length, size, label});
+        }
+
+        private void align() {
+            while (length % 4 != 0) {
+                put(0);
+            }
+        }
+
+        private void put(int b) {
+            if (length >= bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2*bytes.length);
+            }
+            bytes[length++] = (byte)b;
+        }
+
+        private void putShort(int value) {
+            put(value >> 8);
+            put(value);
+        }
+
+        private void putInt(int value) {
+            putShort(value >> 16);
+            putShort(value);
+        }
+    }
+}
@@ -0,0 +1,671 @@
+package org.tastefuljava.jsonia.props;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.props.ClassFile.Code;
+import org.tastefuljava.jsonia.props.ClassFile.Label;
+
+/**
+ * Generates a {@link ClassCodec} for a class. The generated class is
+ * defined in a class loader of its own, whose parent is the loader of the
+ * class, so that it can be unloaded with it. Being in another package, it
+ * can only access public members of public classes directly.
+ */
+final class CodecGenerator {
+    private static final Logger LOG
+            = Logger.getLogger(CodecGenerator.class.getName());
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String PACKAGE = "org/tastefuljava/jsonia/generated/";
+    private static final String CODEC = internalName(ClassCodec.class);
+    private static final String PROPERTY = internalName(PropertyDef.class);
+    private static final String HANDLER = internalName(JSonHandler.class);
+    private static final String CONSUMER = "java/util/function/Consumer";
+    private static final String PROPS_DESC = "[L" + PROPERTY + ";";
+
+    // opcodes
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int ASTORE = 0x3A;
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int ALOAD_2 = 0x2C;
+    private static final int ALOAD_3 = 0x2D;
+    private static final int LLOAD_3 = 0x21;
+    private static final int DLOAD_3 = 0x29;
+    private static final int ILOAD_2 = 0x1C;
+    private static final int ILOAD_3 = 0x1D;
+    private static final int AALOAD = 0x32;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int I2L = 0x85;
+    private static final int L2I = 0x88;
+    private static final int F2D = 0x8D;
+    private static final int IFEQ = 0x99;
+    private static final int IFNULL = 0xC6;
+    private static final int IFNONNULL = 0xC7;
+    private static final int IRETURN = 0xAC;
+    private static final int ARETURN = 0xB0;
+    private static final int RETURN = 0xB1;
+    private static final int GETFIELD = 0xB4;
+    private static final int PUTFIELD = 0xB5;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKESTATIC = 0xB8;
+    private static final int NEW = 0xBB;
+    private static final int CHECKCAST = 0xC0;
+
+    // local variables of write
+    private static final int BEAN = 4;
+    private static final int VALUE = 5;
+
+    private final ClassDef<?> cdef;
+    private final Class<?> clazz;
+    private final PropertyDef[] props;
+    private final String name;
+    private final ClassFile cf;
+
+    private CodecGenerator(ClassDef<?> cdef) {
+        this.cdef = cdef;
+        this.clazz = cdef.getJavaClass();
+        this.props = cdef.getProperties();
+        this.name = PACKAGE + "Codec" + COUNTER.incrementAndGet();
+        this.cf = new ClassFile(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL
+                | ClassFile.ACC_SUPER, name, CODEC);
+    }
+
+    /**
+     * Returns a codec for the class, or null when it cannot be generated.
+     */
+    static ClassCodec generate(ClassDef<?> cdef) {
+        try {
+            CodecGenerator gen = new CodecGenerator(cdef);
+            byte[] bytes = gen.generate();
+            Class<?> codecClass = new Loader(cdef.getJavaClass())
+                    .define(gen.name.replace('/', '.'), bytes);
+            return (ClassCodec)codecClass
+                    .getConstructor(PropertyDef[].class)
+                    .newInstance((Object)gen.props);
+        } catch (Exception | LinkageError ex) {
+            LOG.log(Level.WARNING, "Cannot generate a codec for "
+                    + cdef.getName(), ex);
+            return null;
+        }
+    }
+
+    private byte[] generate() {
+        constructor();
+        newInstance();
+        write();
+        indexOf();
+        set();
+        setPrimitive("setLong", "J", LLOAD_3, PropertyDef.Kind.INT,
+                PropertyDef.Kind.LONG);
+        setPrimitive("setDouble", "D", DLOAD_3, PropertyDef.Kind.DOUBLE,
+                null);
+        setPrimitive("setBoolean", "Z", ILOAD_3, PropertyDef.Kind.BOOLEAN,
+                null);
+        return cf.toByteArray();
+    }
+
+    private void constructor() {
+        Code code = cf.method(ClassFile.ACC_PUBLIC, "<init>",
+                "(" + PROPS_DESC + ")V", 2, 2);
+        code.op(ALOAD_0);
+        code.op(ALOAD_1);
+        code.invoke(INVOKESPECIAL, CODEC, "<init>", "(" + PROPS_DESC + ")V");
+        code.op(RETURN);
+    }
+
+    private void newInstance() {
+        if (!isPublic(clazz) || Modifier.isAbstract(clazz.getModifiers())) {
+            return;
+        }
+        try {
+            Constructor<?> cons = clazz.getConstructor();
+            if (!Modifier.isPublic(cons.getModifiers())) {
+                return;
+            }
+        } catch (NoSuchMethodException ex) {
+            return;
+        }
+        Code code = cf.method(ClassFile.ACC_PUBLIC, "newInstance",
+                "()Ljava/lang/Object;", 2, 1);
+        String type = internalName(clazz);
+        code.type(NEW, type);
+        code.op(DUP);
+        code.invoke(INVOKESPECIAL, type, "<init>", "()V");
+        code.op(ARETURN);
+    }
+
+    /**
+     * Straight-line code that reads each property, and sends it to the
+     * handler with its name as a constant.
+     */
+    private void write() {
+        Code code = cf.method(ClassFile.ACC_PUBLIC, "write",
+                "(Ljava/lang/Object;L" + HANDLER + ";L" + CONSUMER + ";)V",
+                8, 6);
+        if (isPublic(clazz)) {
+            code.op(ALOAD_1);
+            code.type(CHECKCAST, internalName(clazz));
+            code.local(ASTORE, BEAN);
+        }
+        for (int i = 0; i < props.length; ++i) {
+            PropertyDef prop = props[i];
+            if (!prop.canGet()) {
+                continue;
+            }
+            Class<?> type = valueType(prop);
+            if (type == char.class) {
+                loadValue(code, i);
+                code.invoke(INVOKESTATIC, "java/lang/Character", "valueOf",
+                        "(C)Ljava/lang/Character;");
+                type = Character.class;
+            } else if (type.isPrimitive()) {
+                field(code, "startField", prop);
+                code.op(ALOAD_2);
+                loadValue(code, i);
+                handlePrimitive(code, type);
+                field(code, "endField", prop);
+                continue;
+            } else {
+                loadValue(code, i);
+            }
+            Label skip = new Label();
+            code.local(ASTORE, VALUE);
+            code.local(ALOAD, VALUE);
+            code.jump(IFNULL, skip);
+            field(code, "startField", prop);
+            if (type == String.class) {
+                code.op(ALOAD_2);
+                code.local(ALOAD, VALUE);
+                code.invokeInterface(HANDLER, "handleString",
+                        "(Ljava/lang/String;)V", 1);
+            } else {
+                code.op(ALOAD_3);
+                code.local(ALOAD, VALUE);
+                code.invokeInterface(CONSUMER, "accept",
+                        "(Ljava/lang/Object;)V", 1);
+            }
+            field(code, "endField", prop);
+            code.mark(skip);
+        }
+        code.op(RETURN);
+    }
+
+    private void field(Code code, String method, PropertyDef prop) {
+        code.op(ALOAD_2);
+        code.ldc(prop.getName());
+        code.invokeInterface(HANDLER, method, "(Ljava/lang/String;)V", 1);
+    }
+
+    private void handlePrimitive(Code code, Class<?> type) {
+        if (type == boolean.class) {
+            code.invokeInterface(HANDLER, "handleBoolean", "(Z)V", 1);
+        } else if (type == double.class || type == float.class) {
+            if (type == float.class) {
+                code.op(F2D);
+            }
+            code.invokeInterface(HANDLER, "handleDouble", "(D)V", 2);
+        } else {
+            if (type != long.class) {
+                code.op(I2L);
+            }
+            code.invokeInterface(HANDLER, "handleLong", "(J)V", 2);
+        }
+    }
+
+    /**
+     * Returns the type of the value that {@link #loadValue(Code, int)}
+     * pushes on the stack for a property.
+     */
+    private Class<?> valueType(PropertyDef prop) {
+        Member getter = directGetter(prop);
+        if (getter instanceof Field) {
+            return ((Field)getter).getType();
+        } else if (getter instanceof Method) {
+            return ((Method)getter).getReturnType();
+        }
+        switch (prop.getKind()) {
+            case BOOLEAN:
+                return boolean.class;
+            case INT:
+                return int.class;
+            case LONG:
+                return long.class;
+            case DOUBLE:
+                return double.class;
+            default:
+                return Object.class;
+        }
+    }
+
+    private void loadValue(Code code, int index) {
+        PropertyDef prop = props[index];
+        Member getter = directGetter(prop);
+        if (getter instanceof Field) {
+            Field field = (Field)getter;
+            code.local(ALOAD, BEAN);
+            code.field(GETFIELD, internalName(field.getDeclaringClass()),
+                    field.getName(), descriptor(field.getType()));
+        } else if (getter instanceof Method) {
+            code.local(ALOAD, BEAN);
+            invoke(code, (Method)getter);
+        } else {
+            property(code, index);
+            code.op(ALOAD_1);
+            switch (prop.getKind()) {
+                case BOOLEAN:
+                    code.invoke(INVOKEVIRTUAL, PROPERTY, "getBoolean",
+                            "(Ljava/lang/Object;)Z");
+                    break;
+                case INT:
+                    code.invoke(INVOKEVIRTUAL, PROPERTY, "getInt",
+                            "(Ljava/lang/Object;)I");
+                    break;
+                case LONG:
+                    code.invoke(INVOKEVIRTUAL, PROPERTY, "getLong",
+                            "(Ljava/lang/Object;)J");
+                    break;
+                case DOUBLE:
+                    code.invoke(INVOKEVIRTUAL, PROPERTY, "getDouble",
+                            "(Ljava/lang/Object;)D");
+                    break;
+                default:
+                    code.invoke(INVOKEVIRTUAL, PROPERTY, "get",
+                            "(Ljava/lang/Object;)Ljava/lang/Object;");
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Looks up the name in a lookupswitch on its hash code.
+     */
+    private void indexOf() {
+        Code code = cf.method(ClassFile.ACC_PUBLIC, "indexOf",
+                "(Ljava/lang/String;)I", 3, 2);
+        Map<Integer,Label> labels = new TreeMap<>();
+        for (PropertyDef prop: props) {
+            labels.put(prop.getName().hashCode(), new Label());
+        }
+        Label notFound = new Label();
+        int[] keys = new int[labels.size()];
+        Label[] targets = new Label[labels.size()];
+        int n = 0;
+        for (Map.Entry<Integer,Label> e: labels.entrySet()) {
+            keys[n] = e.getKey();
+            targets[n++] = e.getValue();
+        }
+        code.op(ALOAD_1);
+        code.invoke(INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I");
+        code.lookupSwitch(notFound, keys, targets);
+        for (Map.Entry<Integer,Label> e: labels.entrySet()) {
+            code.mark(e.getValue());
+            for (int i = 0; i < props.length; ++i) {
+                String propName = props[i].getName();
+                if (propName.hashCode() == e.getKey()) {
+                    Label next = new Label();
+                    code.op(ALOAD_1);
+                    code.ldc(propName);
+                    code.invoke(INVOKEVIRTUAL, "java/lang/String", "equals",
+                            "(Ljava/lang/Object;)Z");
+                    code.jump(IFEQ, next);
+                    code.push(i);
+                    code.op(IRETURN);
+                    code.mark(next);
+                }
+            }
+            code.push(-1);
+            code.op(IRETURN);
+        }
+        code.mark(notFound);
+        code.push(-1);
+        code.op(IRETURN);
+    }
+
+    /**
+     * A tableswitch on the index, to a direct assignment or setter call.
+     */
+    private void set() {
+        Code code = cf.method(ClassFile.ACC_PUBLIC, "set",
+                "(Ljava/lang/Object;ILjava/lang/Object;)V", 8, 4);
+        if (props.length == 0) {
+            code.op(RETURN);
+            return;
+        }
+        Label dflt = new Label();
+        Label[] labels = new Label[props.length];
+        for (int i = 0; i < labels.length; ++i) {
+            labels[i] = new Label();
+        }
+        code.op(ILOAD_2);
+        code.tableSwitch(0, dflt, labels);
+        for (int i = 0; i < props.length; ++i) {
+            code.mark(labels[i]);
+            Member setter = directSetter(props[i]);
+            if (setter != null) {
+                Class<?> type = setterType(setter);
+                if (type.isPrimitive()) {
+                    // null is rejected by the property, with an
+                    // IllegalArgumentException as with reflection
+                    Label notNull = new Label();
+                    code.op(ALOAD_3);
+                    code.jump(IFNONNULL, notNull);
+                    setThroughProperty(code, i);
+                    code.mark(notNull);
+                }
+                code.op(ALOAD_1);
+                code.type(CHECKCAST, internalName(setter.getDeclaringClass()));
+                code.op(ALOAD_3);
+                unbox(code, type);
+                assign(code, setter);
+            } else {
+                setThroughProperty(code, i);
+                continue;
+            }
+            code.op(RETURN);
+        }
+        code.mark(dflt);
+        code.op(RETURN);
+    }
+
+    private void setThroughProperty(Code code, int index) {
+        property(code, index);
+        code.op(ALOAD_1);
+        code.op(ALOAD_3);
+        code.invoke(INVOKEVIRTUAL, PROPERTY, "set",
+                "(Ljava/lang/Object;Ljava/lang/Object;)V");
+        code.op(RETURN);
+    }
+
+    /**
+     * Generates setLong, setDouble or setBoolean for the properties of the
+     * given kinds; the value is in local variable 3.
+     */
+    private void setPrimitive(String method, String desc, int load,
+            PropertyDef.Kind kind1, PropertyDef.Kind kind2) {
+        Code code = cf.method(ClassFile.ACC_PUBLIC, method,
+                "(Ljava/lang/Object;I" + desc + ")V", 8, 5);
+        Label dflt = new Label();
+        Label[] labels = new Label[props.length];
+        boolean any = false;
+        for (int i = 0; i < props.length; ++i) {
+            PropertyDef.Kind kind = props[i].getKind();
+            labels[i] = kind == kind1 || kind == kind2 ? new Label() : dflt;
+            any |= labels[i] != dflt;
+        }
+        if (any) {
+            code.op(ILOAD_2);
+            code.tableSwitch(0, dflt, labels);
+            for (int i = 0; i < props.length; ++i) {
+                if (labels[i] == dflt) {
+                    continue;
+                }
+                code.mark(labels[i]);
+                boolean narrow = props[i].getKind() == PropertyDef.Kind.INT;
+                Member setter = directSetter(props[i]);
+                if (setter != null) {
+                    code.op(ALOAD_1);
+                    code.type(CHECKCAST,
+                            internalName(setter.getDeclaringClass()));
+                    code.op(load);
+                    if (narrow) {
+                        code.op(L2I);
+                    }
+                    assign(code, setter);
+                } else {
+                    property(code, i);
+                    code.op(ALOAD_1);
+                    code.op(load);
+                    if (narrow) {
+                        code.op(L2I);
+                        code.invoke(INVOKEVIRTUAL, PROPERTY, "setInt",
+                                "(Ljava/lang/Object;I)V");
+                    } else {
+                        code.invoke(INVOKEVIRTUAL, PROPERTY, method,
+                                "(Ljava/lang/Object;" + desc + ")V");
+                    }
+                }
+                code.op(RETURN);
+            }
+            code.mark(dflt);
+        }
+        code.op(ALOAD_0);
+        code.op(ALOAD_1);
+        code.op(ILOAD_2);
+        code.op(load);
+        code.invoke(INVOKESPECIAL, CODEC, method,
+                "(Ljava/lang/Object;I" + desc + ")V");
+        code.op(RETURN);
+    }
+
+    /**
+     * Pushes props[index].
+     */
+    private void property(Code code, int index) {
+        code.op(ALOAD_0);
+        code.field(GETFIELD, CODEC, "props", PROPS_DESC);
+        code.push(index);
+        code.op(AALOAD);
+    }
+
+    private void assign(Code code, Member setter) {
+        if (setter instanceof Field) {
+            Field field = (Field)setter;
+            code.field(PUTFIELD, internalName(field.getDeclaringClass()),
+                    field.getName(), descriptor(field.getType()));
+        } else {
+            Method method = (Method)setter;
+            invoke(code, method);
+            Class<?> result = method.getReturnType();
+            if (result == long.class || result == double.class) {
+                code.op(POP2);
+            } else if (result != void.class) {
+                code.op(POP);
+            }
+        }
+    }
+
+    private static void invoke(Code code, Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        StringBuilder desc = new StringBuilder("(");
+        int slots = 0;
+        for (Class<?> param: method.getParameterTypes()) {
+            desc.append(descriptor(param));
+            slots += param == long.class || param == double.class ? 2 : 1;
+        }
+        desc.append(')').append(descriptor(method.getReturnType()));
+        if (owner.isInterface()) {
+            code.invokeInterface(internalName(owner), method.getName(),
+                    desc.toString(), slots);
+        } else {
+            code.invoke(INVOKEVIRTUAL, internalName(owner), method.getName(),
+                    desc.toString());
+        }
+    }
+
+    /**
+     * Converts the Object on the stack to the type of a property: a
+     * primitive is unboxed, a reference is cast.
+     */
+    private static void unbox(Code code, Class<?> type) {
+        if (type == Object.class) {
+            return;
+        } else if (!type.isPrimitive()) {
+            code.type(CHECKCAST, internalName(type));
+            return;
+        }
+        String box;
+        if (type == boolean.class) {
+            box = "java/lang/Boolean";
+        } else if (type == char.class) {
+            box = "java/lang/Character";
+        } else if (type == int.class) {
+            box = "java/lang/Integer";
+        } else if (type == long.class) {
+            box = "java/lang/Long";
+        } else if (type == double.class) {
+            box = "java/lang/Double";
+        } else if (type == float.class) {
+            box = "java/lang/Float";
+        } else if (type == short.class) {
+            box = "java/lang/Short";
+        } else {
+            box = "java/lang/Byte";
+        }
+        code.type(CHECKCAST, box);
+        code.invoke(INVOKEVIRTUAL, box, type.getName() + "Value",
+                "()" + descriptor(type));
+    }
+
+    private static Class<?> setterType(Member setter) {
+        return setter instanceof Field ? ((Field)setter).getType()
+                : ((Method)setter).getParameterTypes()[0];
+    }
+
+    /**
+     * Returns the public field or the public getter of a property, or null
+     * when it must be read through its PropertyDef.
+     */
+    private Member directGetter(PropertyDef prop) {
+        if (!isPublic(clazz)) {
+            return null;
+        } else if (prop instanceof FieldProperty) {
+            Field field = ((FieldProperty)prop).getField();
+            return isAccessible(field) ? field : null;
+        } else if (prop instanceof MethodProperty) {
+            Method getter = ((MethodProperty)prop).getGetter();
+            return getter != null && isAccessible(getter)
+                    && getter.getReturnType() == prop.getType()
+                    ? getter : null;
+        }
+        return null;
+    }
+
+    private Member directSetter(PropertyDef prop) {
+        if (!isPublic(clazz)) {
+            return null;
+        } else if (prop instanceof FieldProperty) {
+            Field field = ((FieldProperty)prop).getField();
+            return isAccessible(field)
+                    && !Modifier.isFinal(field.getModifiers()) ? field : null;
+        } else if (prop instanceof MethodProperty) {
+            Method setter = ((MethodProperty)prop).getSetter();
+            return setter != null && isAccessible(setter)
+                    && setter.getParameterTypes()[0] == prop.getType()
+                    ? setter : null;
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether a member can be accessed from the generated class.
+     * Methods that throw checked exceptions are called through their
+     * PropertyDef, which reports them as the other errors.
+     */
+    private static boolean isAccessible(Member member) {
+        if (!Modifier.isPublic(member.getModifiers())
+                || Modifier.isStatic(member.getModifiers())
+                || !isPublic(member.getDeclaringClass())) {
+            return false;
+        } else if (member instanceof Field) {
+            return isPublic(((Field)member).getType());
+        }
+        Method method = (Method)member;
+        if (method.getExceptionTypes().length > 0
+                || !isPublic(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> type: method.getParameterTypes()) {
+            if (!isPublic(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> cl = clazz; cl != null; cl = cl.getDeclaringClass()) {
+            if (!Modifier.isPublic(cl.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.isArray() ? descriptor(clazz)
+                : clazz.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        } else if (type == void.class) {
+            return "V";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == double.class) {
+            return "D";
+        } else {
+            return "L" + internalName(type) + ";";
+        }
+    }
+
+    /**
+     * Loads the generated class and the classes of the library it uses
+     * from the library's class loader, and all other classes from the
+     * loader of the class of the codec.
+     */
+    private static final class Loader extends ClassLoader {
+        private Loader(Class<?> clazz) {
+            super(clazz.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (name.equals(ClassCodec.class.getName())
+                    || name.equals(PropertyDef.class.getName())
+                    || name.equals(JSonHandler.class.getName())) {
+                return Class.forName(name, false,
+                        CodecGenerator.class.getClassLoader());
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
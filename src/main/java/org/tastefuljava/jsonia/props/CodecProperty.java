@@ -0,0 +1,52 @@
+package org.tastefuljava.jsonia.props;
+
+/**
+ * A property of a codec generated at compile time, which reads and writes
+ * it without reflection.
+ */
+class CodecProperty extends PropertyDef {
+    private final boolean canGet;
+    private final boolean canSet;
+    private ClassCodec codec;
+    private int index;
+
+    CodecProperty(String name, Class<?> type, boolean canGet,
+            boolean canSet) {
+        super(name, type);
+        this.canGet = canGet;
+        this.canSet = canSet;
+    }
+
+    void attach(ClassCodec codec, int index) {
+        this.codec = codec;
+        this.index = index;
+    }
+
+    @Override
+    public boolean canGet() {
+        return canGet;
+    }
+
+    @Override
+    public boolean canSet() {
+        return canSet;
+    }
+
+    @Override
+    public Object get(Object object) {
+        if (!canGet) {
+            throw new UnsupportedOperationException(
+                    "Property " + getName() + " cannot be read");
+        }
+        return codec.get(object, index);
+    }
+
+    @Override
+    public void set(Object object, Object value) {
+        if (!canSet) {
+            throw new UnsupportedOperationException(
+                    "Property " + getName() + " cannot be set");
+        }
+        codec.set(object, index, value);
+    }
+}
@@ -1,5 +1,6 @@
 package org.tastefuljava.jsonia.props;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -9,10 +10,19 @@ public class FieldProperty extends PropertyDef {
             = Logger.getLogger(FieldProperty.class.getName());
 
     private final Field field;
+    // the handles take and return primitives for the primitive kinds
+    private final MethodHandle getter;
+    private final MethodHandle setter;
 
     FieldProperty(Field field) {
         super(field.getName(), field.getType());
         this.field = field;
+        this.getter = Accessors.getter(field, getKind());
+        this.setter = Accessors.setter(field, getKind());
+    }
+
+    Field getField() {
+        return field;
     }
 
     @Override
@@ -27,21 +37,168 @@ public class FieldProperty extends PropertyDef {
 
     @Override
     public Object get(Object object) {
+        switch (getKind()) {
+            case BOOLEAN:
+                return getBoolean(object);
+            case INT:
+                return getInt(object);
+            case LONG:
+                return getLong(object);
+            case DOUBLE:
+                return getDouble(object);
+            default:
+                break;
+        }
         try {
-            return field.get(object);
-        } catch (IllegalAccessException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-            throw new IllegalArgumentException(ex.getMessage());
+            return getter != null
+                    ? (Object)getter.invokeExact(object) : field.get(object);
+        } catch (Throwable ex) {
+            throw error(ex);
         }
     }
 
     @Override
     public void set(Object object, Object value) {
         try {
-            field.set(object, value);
-        } catch (IllegalAccessException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-            throw new IllegalArgumentException(ex.getMessage());
+            if (setter != null && getKind() == Kind.OBJECT) {
+                setter.invokeExact(object, value);
+            } else {
+                field.set(object, value);
+            }
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(Object object) {
+        if (getKind() != Kind.BOOLEAN) {
+            return super.getBoolean(object);
+        }
+        try {
+            return getter != null
+                    ? (boolean)getter.invokeExact(object)
+                    : field.getBoolean(object);
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public int getInt(Object object) {
+        if (getKind() != Kind.INT) {
+            return super.getInt(object);
+        }
+        try {
+            return getter != null
+                    ? (int)getter.invokeExact(object) : field.getInt(object);
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public long getLong(Object object) {
+        if (getKind() != Kind.LONG) {
+            return super.getLong(object);
+        }
+        try {
+            return getter != null
+                    ? (long)getter.invokeExact(object) : field.getLong(object);
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public double getDouble(Object object) {
+        if (getKind() != Kind.DOUBLE) {
+            return super.getDouble(object);
+        }
+        try {
+            return getter != null
+                    ? (double)getter.invokeExact(object)
+                    : field.getDouble(object);
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setBoolean(Object object, boolean value) {
+        if (getKind() != Kind.BOOLEAN) {
+            super.setBoolean(object, value);
+            return;
+        }
+        try {
+            if (setter != null) {
+                setter.invokeExact(object, value);
+            } else {
+                field.setBoolean(object, value);
+            }
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setInt(Object object, int value) {
+        if (getKind() != Kind.INT) {
+            super.setInt(object, value);
+            return;
+        }
+        try {
+            if (setter != null) {
+                setter.invokeExact(object, value);
+            } else {
+                field.setInt(object, value);
+            }
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setLong(Object object, long value) {
+        if (getKind() != Kind.LONG) {
+            super.setLong(object, value);
+            return;
+        }
+        try {
+            if (setter != null) {
+                setter.invokeExact(object, value);
+            } else {
+                field.setLong(object, value);
+            }
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setDouble(Object object, double value) {
+        if (getKind() != Kind.DOUBLE) {
+            super.setDouble(object, value);
+            return;
+        }
+        try {
+            if (setter != null) {
+                setter.invokeExact(object, value);
+            } else {
+                field.setDouble(object, value);
+            }
+        } catch (Throwable ex) {
+            throw error(ex);
+        }
+    }
+
+    private static RuntimeException error(Throwable ex) {
+        if (ex instanceof Error) {
+            throw (Error)ex;
+        } else if (ex instanceof RuntimeException) {
+            return (RuntimeException)ex;
         }
+        LOG.log(Level.SEVERE, null, ex);
+        return new IllegalArgumentException(ex.getMessage());
     }
 }
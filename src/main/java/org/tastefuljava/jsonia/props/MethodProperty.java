@@ -2,6 +2,15 @@ package org.tastefuljava.jsonia.props;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,6 +20,9 @@ public class MethodProperty extends PropertyDef {
 
     private final Method getter;
     private final Method setter;
+    // functional interfaces that depend on the kind; see Accessors
+    private final Object getterFunction;
+    private final Object setterFunction;
 
     MethodProperty(String name, Class<?> type, Method getter, Method setter) {
         super(name, type);
@@ -20,6 +32,18 @@ public class MethodProperty extends PropertyDef {
         }
         this.getter = getter;
         this.setter = setter;
+        this.getterFunction = getter == null
+                ? null : Accessors.getter(getter, getKind());
+        this.setterFunction = setter == null
+                ? null : Accessors.setter(setter, getKind());
+    }
+
+    Method getGetter() {
+        return getter;
+    }
+
+    Method getSetter() {
+        return setter;
     }
 
     @Override
@@ -34,27 +58,204 @@ public class MethodProperty extends PropertyDef {
 
     @Override
     public Object get(Object object) {
+        if (getterFunction == null) {
+            return invokeGetter(object);
+        }
+        switch (getKind()) {
+            case BOOLEAN:
+                return getBoolean(object);
+            case INT:
+                return getInt(object);
+            case LONG:
+                return getLong(object);
+            case DOUBLE:
+                return getDouble(object);
+            default:
+                @SuppressWarnings(value = "unchecked")
+                Function<Object,Object> function
+                        = (Function<Object,Object>)getterFunction;
+                return function.apply(object);
+        }
+    }
+
+    @Override
+    public void set(Object object, Object value) {
+        if (setterFunction == null || getKind() != Kind.OBJECT
+                && getKind() != Kind.BOOLEAN) {
+            invokeSetter(object, value);
+            return;
+        } else if (value == null && getType().isPrimitive()) {
+            // the function would fail to unbox it
+            throw new IllegalArgumentException(
+                    "Cannot set primitive property " + getName() + " to null");
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            BiConsumer<Object,Object> function
+                    = (BiConsumer<Object,Object>)setterFunction;
+            function.accept(object, value);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(Object object) {
+        if (getKind() != Kind.BOOLEAN || getterFunction == null) {
+            return super.getBoolean(object);
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            Predicate<Object> function = (Predicate<Object>)getterFunction;
+            return function.test(object);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public int getInt(Object object) {
+        if (getKind() != Kind.INT || getterFunction == null) {
+            return super.getInt(object);
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ToIntFunction<Object> function
+                    = (ToIntFunction<Object>)getterFunction;
+            return function.applyAsInt(object);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public long getLong(Object object) {
+        if (getKind() != Kind.LONG || getterFunction == null) {
+            return super.getLong(object);
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ToLongFunction<Object> function
+                    = (ToLongFunction<Object>)getterFunction;
+            return function.applyAsLong(object);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public double getDouble(Object object) {
+        if (getKind() != Kind.DOUBLE || getterFunction == null) {
+            return super.getDouble(object);
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ToDoubleFunction<Object> function
+                    = (ToDoubleFunction<Object>)getterFunction;
+            return function.applyAsDouble(object);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setInt(Object object, int value) {
+        if (getKind() != Kind.INT || setterFunction == null) {
+            super.setInt(object, value);
+            return;
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ObjIntConsumer<Object> function
+                    = (ObjIntConsumer<Object>)setterFunction;
+            function.accept(object, value);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setLong(Object object, long value) {
+        if (getKind() != Kind.LONG || setterFunction == null) {
+            super.setLong(object, value);
+            return;
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ObjLongConsumer<Object> function
+                    = (ObjLongConsumer<Object>)setterFunction;
+            function.accept(object, value);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    @Override
+    public void setDouble(Object object, double value) {
+        if (getKind() != Kind.DOUBLE || setterFunction == null) {
+            super.setDouble(object, value);
+            return;
+        }
+        try {
+            @SuppressWarnings(value = "unchecked")
+            ObjDoubleConsumer<Object> function
+                    = (ObjDoubleConsumer<Object>)setterFunction;
+            function.accept(object, value);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    private Object invokeGetter(Object object) {
         if (getter == null) {
             throw new UnsupportedOperationException("No getter for property");
         }
         try {
             return getter.invoke(object);
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-            throw new IllegalArgumentException(ex.getMessage());
+        } catch (Exception ex) {
+            throw error(ex);
         }
     }
 
-    @Override
-    public void set(Object object, Object value) {
+    private void invokeSetter(Object object, Object value) {
         if (setter == null) {
             throw new UnsupportedOperationException("No setter for property");
         }
         try {
             setter.invoke(object, value);
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-            throw new IllegalArgumentException(ex.getMessage());
+        } catch (Exception ex) {
+            throw error(ex);
+        }
+    }
+
+    /**
+     * Wraps a checked exception thrown by an accessor, which the generated
+     * functions let through as is; unchecked exceptions thrown through
+     * reflection are unwrapped, as the functions do not wrap them.
+     */
+    private static RuntimeException error(Exception ex) {
+        Throwable cause = ex instanceof InvocationTargetException
+                ? ex.getCause() : ex;
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException)cause;
         }
+        LOG.log(Level.SEVERE, null, cause);
+        return new IllegalArgumentException(cause.getMessage());
     }
 }
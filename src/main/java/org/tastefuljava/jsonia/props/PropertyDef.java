@@ -1,12 +1,22 @@
 package org.tastefuljava.jsonia.props;
 
 public abstract class PropertyDef {
+    /**
+     * The primitive types that have accessors of their own; properties of
+     * other types, including the other primitive types, are of kind OBJECT.
+     */
+    public static enum Kind {
+        OBJECT, BOOLEAN, INT, LONG, DOUBLE
+    };
+
     private final String name;
     private final Class<?> type;
+    private final Kind kind;
 
     protected PropertyDef(String name, Class<?> type) {
         this.name = name;
         this.type = type;
+        this.kind = kindOf(type);
     }
 
     public String getName() {
@@ -17,8 +27,64 @@ public abstract class PropertyDef {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
     public abstract boolean canGet();
     public abstract boolean canSet();
     public abstract Object get(Object object);
     public abstract void set(Object object, Object value);
+
+    /*
+     * The primitive accessors are meant for the properties of the matching
+     * kind, which implementations access without boxing. The default
+     * implementations box the values.
+     */
+
+    public boolean getBoolean(Object object) {
+        return (Boolean)get(object);
+    }
+
+    public int getInt(Object object) {
+        return ((Number)get(object)).intValue();
+    }
+
+    public long getLong(Object object) {
+        return ((Number)get(object)).longValue();
+    }
+
+    public double getDouble(Object object) {
+        return ((Number)get(object)).doubleValue();
+    }
+
+    public void setBoolean(Object object, boolean value) {
+        set(object, value);
+    }
+
+    public void setInt(Object object, int value) {
+        set(object, value);
+    }
+
+    public void setLong(Object object, long value) {
+        set(object, value);
+    }
+
+    public void setDouble(Object object, double value) {
+        set(object, value);
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (type == int.class) {
+            return Kind.INT;
+        } else if (type == long.class) {
+            return Kind.LONG;
+        } else if (type == double.class) {
+            return Kind.DOUBLE;
+        } else {
+            return Kind.OBJECT;
+        }
+    }
 }
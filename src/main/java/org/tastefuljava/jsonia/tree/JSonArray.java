@@ -0,0 +1,28 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only array of a compact tree.
+ */
+public class JSonArray extends AbstractList<Object> implements RandomAccess {
+    private final Object[] values;
+
+    /**
+     * Creates an array with the given elements; the array is not copied.
+     */
+    public JSonArray(Object[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
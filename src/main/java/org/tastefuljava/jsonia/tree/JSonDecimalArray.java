@@ -0,0 +1,54 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only array of decimals and integers, stored as unscaled longs and
+ * scales. The decimals are seen as BigDecimals, and the integers as
+ * Integers or Longs, as in the generic tree.
+ */
+public class JSonDecimalArray extends AbstractList<Object>
+        implements RandomAccess {
+    /**
+     * The scale of the elements that are integers.
+     */
+    public static final byte INTEGER = Byte.MIN_VALUE;
+
+    private final long[] unscaled;
+    private final byte[] scales;
+
+    /**
+     * Creates an array with the given elements; the arrays are not copied.
+     */
+    public JSonDecimalArray(long[] unscaled, byte[] scales) {
+        this.unscaled = unscaled;
+        this.scales = scales;
+    }
+
+    public static Number toNumber(long unscaled, byte scale) {
+        if (scale != INTEGER) {
+            return BigDecimal.valueOf(unscaled, scale);
+        } else if (unscaled == (int)unscaled) {
+            return (int)unscaled;
+        } else {
+            return unscaled;
+        }
+    }
+
+    public double getDouble(int index) {
+        return scales[index] == INTEGER
+                ? unscaled[index] : get(index).doubleValue();
+    }
+
+    @Override
+    public Number get(int index) {
+        return toNumber(unscaled[index], scales[index]);
+    }
+
+    @Override
+    public int size() {
+        return unscaled.length;
+    }
+}
@@ -0,0 +1,38 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only array of numbers, some of them decimals, stored as unboxed
+ * doubles. All the elements are seen as Doubles, integers included.
+ */
+public class JSonDoubleArray extends AbstractList<Object>
+        implements RandomAccess {
+    private final double[] values;
+
+    /**
+     * Creates an array with the given elements; the array is not copied.
+     */
+    public JSonDoubleArray(double[] values) {
+        this.values = values;
+    }
+
+    public double getDouble(int index) {
+        return values[index];
+    }
+
+    public double[] toDoubleArray() {
+        return values.clone();
+    }
+
+    @Override
+    public Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
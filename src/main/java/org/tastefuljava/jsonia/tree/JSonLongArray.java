@@ -0,0 +1,42 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only array of integers, stored unboxed. As in the generic tree,
+ * the elements are seen as Integers when they fit, and as Longs otherwise.
+ */
+public class JSonLongArray extends AbstractList<Object>
+        implements RandomAccess {
+    private final long[] values;
+
+    /**
+     * Creates an array with the given elements; the array is not copied.
+     */
+    public JSonLongArray(long[] values) {
+        this.values = values;
+    }
+
+    public long getLong(int index) {
+        return values[index];
+    }
+
+    public long[] toLongArray() {
+        return values.clone();
+    }
+
+    @Override
+    public Object get(int index) {
+        long value = values[index];
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int)value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
@@ -0,0 +1,167 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only object of a compact tree: the names and the values of its
+ * fields are kept in two arrays, in document order. Small objects are
+ * searched linearly; larger ones have an open-addressing index of the
+ * positions of their fields.
+ */
+public class JSonObject extends AbstractMap<String,Object> {
+    private static final int LINEAR_MAX = 8;
+
+    private final String[] names;
+    private final Object[] values;
+    private final int[] index;
+
+    /**
+     * Creates an object with the given fields; the arrays are not copied.
+     * When a name occurs more than once, the last value is kept.
+     */
+    public JSonObject(String[] names, Object[] values) {
+        int size = names.length;
+        int[] table = null;
+        int removed = 0;
+        if (size > LINEAR_MAX) {
+            table = new int[Integer.highestOneBit(size - 1) << 2];
+            for (int i = 0; i < size; ++i) {
+                int j = find(table, names, names[i]);
+                if (table[j] == 0) {
+                    table[j] = i + 1;
+                } else {
+                    values[table[j] - 1] = values[i];
+                    names[i] = null;
+                    ++removed;
+                }
+            }
+        } else {
+            for (int i = 1; i < size; ++i) {
+                for (int j = 0; j < i; ++j) {
+                    if (names[i].equals(names[j])) {
+                        values[j] = values[i];
+                        names[i] = null;
+                        ++removed;
+                        break;
+                    }
+                }
+            }
+        }
+        if (removed > 0) {
+            String[] newNames = new String[size - removed];
+            Object[] newValues = new Object[size - removed];
+            int count = 0;
+            for (int i = 0; i < size; ++i) {
+                if (names[i] != null) {
+                    newNames[count] = names[i];
+                    newValues[count] = values[i];
+                    ++count;
+                }
+            }
+            names = newNames;
+            values = newValues;
+            if (table != null) {
+                Arrays.fill(table, 0);
+                for (int i = 0; i < count; ++i) {
+                    table[find(table, names, names[i])] = i + 1;
+                }
+            }
+        }
+        this.names = names;
+        this.values = values;
+        this.index = table;
+    }
+
+    /**
+     * Returns the slot of the table that holds the position of the name,
+     * or the free slot where it belongs.
+     */
+    private static int find(int[] table, String[] names, Object name) {
+        int mask = table.length - 1;
+        int h = name.hashCode();
+        int j = (h ^ h >>> 16) & mask;
+        while (table[j] != 0 && !names[table[j] - 1].equals(name)) {
+            j = (j + 1) & mask;
+        }
+        return j;
+    }
+
+    int indexOf(Object name) {
+        if (name == null) {
+            return -1;
+        } else if (index != null) {
+            return index[find(index, names, name)] - 1;
+        }
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public Object getValue(int i) {
+        return values[i];
+    }
+
+    void setValue(int i, Object value) {
+        values[i] = value;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public Set<Entry<String,Object>> entrySet() {
+        return new AbstractSet<Entry<String,Object>>() {
+            @Override
+            public int size() {
+                return names.length;
+            }
+
+            @Override
+            public Iterator<Entry<String,Object>> iterator() {
+                return new Iterator<Entry<String,Object>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+
+                    @Override
+                    public Entry<String,Object> next() {
+                        if (next >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(
+                                names[i], values[i]);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,365 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.util.Numbers;
+
+/**
+ * A document stored as a flat sequence of entries in a ByteBuffer, the
+ * tape, and a pool of UTF-8 strings in another, so that it can live off
+ * the heap, in direct or mapped buffers. Each entry is a tag byte followed
+ * by its operands:
+ * <ul>
+ * <li>{@link #NULL}, {@link #TRUE}, {@link #FALSE}: none;</li>
+ * <li>{@link #LONG}, {@link #DOUBLE}: the value on 8 bytes;</li>
+ * <li>{@link #DECIMAL}, {@link #STRING}: the offset of the text in the
+ * pool, where it is preceded by its length in bytes, and where a lone
+ * surrogate is encoded in three bytes as if it were a character;</li>
+ * <li>{@link #START_OBJECT}, {@link #START_ARRAY}: the position that
+ * follows the matching end entry, and the number of fields or elements;
+ * </li>
+ * <li>{@link #NAME}: the offset of the name in the pool, before the value
+ * of each field;</li>
+ * <li>{@link #END_OBJECT}, {@link #END_ARRAY}: none.</li>
+ * </ul>
+ * A value is designated by the position of its first entry; the top-level
+ * value is at position 0. The tape is navigated with these positions, and
+ * can be replayed as the events of a {@link JSonHandler}.
+ */
+public class JSonTape {
+    public static final byte NULL = 'n';
+    public static final byte TRUE = 't';
+    public static final byte FALSE = 'f';
+    public static final byte LONG = 'l';
+    public static final byte DOUBLE = 'd';
+    public static final byte DECIMAL = 'D';
+    public static final byte STRING = 's';
+    public static final byte START_OBJECT = '{';
+    public static final byte END_OBJECT = '}';
+    public static final byte START_ARRAY = '[';
+    public static final byte END_ARRAY = ']';
+    public static final byte NAME = 'k';
+
+    public static enum Type {
+        NULL, BOOLEAN, NUMBER, STRING, OBJECT, ARRAY
+    };
+
+    private final ByteBuffer tape;
+    private final ByteBuffer strings;
+
+    /**
+     * Creates a tape from the content of the buffers, between 0 and their
+     * limits; their byte order is set to little-endian.
+     */
+    public JSonTape(ByteBuffer tape, ByteBuffer strings) {
+        this.tape = tape.order(ByteOrder.LITTLE_ENDIAN);
+        this.strings = strings.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the size of the tape in bytes.
+     */
+    public int getTapeSize() {
+        return tape.limit();
+    }
+
+    /**
+     * Returns the size of the string pool in bytes.
+     */
+    public int getPoolSize() {
+        return strings.limit();
+    }
+
+    public Type getType(int pos) {
+        switch (tape.get(pos)) {
+            case NULL:
+                return Type.NULL;
+            case TRUE:
+            case FALSE:
+                return Type.BOOLEAN;
+            case LONG:
+            case DOUBLE:
+            case DECIMAL:
+                return Type.NUMBER;
+            case STRING:
+                return Type.STRING;
+            case START_OBJECT:
+                return Type.OBJECT;
+            case START_ARRAY:
+                return Type.ARRAY;
+            default:
+                throw new IllegalArgumentException("No value at " + pos);
+        }
+    }
+
+    public boolean getBoolean(int pos) {
+        return check(pos, TRUE, FALSE) == TRUE;
+    }
+
+    /**
+     * Returns the value of a number, as a long.
+     */
+    public long getLong(int pos) {
+        switch (check(pos, LONG, DOUBLE, DECIMAL)) {
+            case LONG:
+                return tape.getLong(pos + 1);
+            case DOUBLE:
+                return (long)tape.getDouble(pos + 1);
+            default:
+                return getNumber(pos).longValue();
+        }
+    }
+
+    /**
+     * Returns the value of a number, as a double.
+     */
+    public double getDouble(int pos) {
+        switch (check(pos, LONG, DOUBLE, DECIMAL)) {
+            case LONG:
+                return tape.getLong(pos + 1);
+            case DOUBLE:
+                return tape.getDouble(pos + 1);
+            default:
+                return Numbers.parseDouble(text(tape.getInt(pos + 1)));
+        }
+    }
+
+    /**
+     * Returns a number as the generic builder would.
+     */
+    public Number getNumber(int pos) {
+        switch (check(pos, LONG, DOUBLE, DECIMAL)) {
+            case LONG:
+                long value = tape.getLong(pos + 1);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    return value;
+                }
+                return (int)value;
+            case DOUBLE:
+                return tape.getDouble(pos + 1);
+            default:
+                return Numbers.toNumber(text(tape.getInt(pos + 1)));
+        }
+    }
+
+    public String getString(int pos) {
+        check(pos, STRING, STRING);
+        return text(tape.getInt(pos + 1));
+    }
+
+    /**
+     * Returns the number of fields of an object, or of elements of an array.
+     */
+    public int size(int pos) {
+        check(pos, START_OBJECT, START_ARRAY);
+        return tape.getInt(pos + 5);
+    }
+
+    /**
+     * Returns the position that follows the value at pos.
+     */
+    public int skip(int pos) {
+        switch (tape.get(pos)) {
+            case START_OBJECT:
+            case START_ARRAY:
+                return tape.getInt(pos + 1);
+            case LONG:
+            case DOUBLE:
+                return pos + 9;
+            case DECIMAL:
+            case STRING:
+                return pos + 5;
+            default:
+                return pos + 1;
+        }
+    }
+
+    /**
+     * Returns the position of the value of a field of an object, or -1 if
+     * the object has no such field.
+     */
+    public int field(int pos, String name) {
+        check(pos, START_OBJECT, START_OBJECT);
+        pos += 9;
+        while (tape.get(pos) == NAME) {
+            if (textEquals(tape.getInt(pos + 1), name)) {
+                return pos + 5;
+            }
+            pos = skip(pos + 5);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of an element of an array.
+     */
+    public int element(int pos, int index) {
+        if (index < 0 || index >= size(pos)) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        check(pos, START_ARRAY, START_ARRAY);
+        pos += 9;
+        for (int i = 0; i < index; ++i) {
+            pos = skip(pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position of the first field of an object, or of the first
+     * element of an array. The fields of an object are designated by the
+     * position of their name, which is followed by the value five bytes
+     * further; the next field or element is found with {@link #next(int)}.
+     */
+    public int first(int pos) {
+        check(pos, START_OBJECT, START_ARRAY);
+        return hasValue(pos + 9) ? pos + 9 : -1;
+    }
+
+    /**
+     * Returns the position of the field or element that follows the one at
+     * pos, or -1 after the last one.
+     */
+    public int next(int pos) {
+        pos = tape.get(pos) == NAME ? skip(pos + 5) : skip(pos);
+        return hasValue(pos) ? pos : -1;
+    }
+
+    /**
+     * Returns the name of the field at pos.
+     */
+    public String getName(int pos) {
+        check(pos, NAME, NAME);
+        return text(tape.getInt(pos + 1));
+    }
+
+    /**
+     * Sends the events of the top-level value to the handler.
+     */
+    public void replay(JSonHandler handler) {
+        replay(0, handler);
+    }
+
+    /**
+     * Sends the events of the value at pos to the handler, and returns the
+     * position that follows it.
+     */
+    public int replay(int pos, JSonHandler handler) {
+        switch (tape.get(pos)) {
+            case NULL:
+                handler.handleNull();
+                return pos + 1;
+            case TRUE:
+                handler.handleBoolean(true);
+                return pos + 1;
+            case FALSE:
+                handler.handleBoolean(false);
+                return pos + 1;
+            case LONG:
+                handler.handleLong(tape.getLong(pos + 1));
+                return pos + 9;
+            case DOUBLE:
+                handler.handleDouble(tape.getDouble(pos + 1));
+                return pos + 9;
+            case DECIMAL:
+                handler.handleDecimal(text(tape.getInt(pos + 1)));
+                return pos + 5;
+            case STRING:
+                handler.handleString(text(tape.getInt(pos + 1)));
+                return pos + 5;
+            case START_OBJECT:
+                handler.startObject();
+                pos += 9;
+                while (tape.get(pos) == NAME) {
+                    String name = text(tape.getInt(pos + 1));
+                    handler.startField(name);
+                    pos = replay(pos + 5, handler);
+                    handler.endField(name);
+                }
+                handler.endObject();
+                return pos + 1;
+            case START_ARRAY:
+                handler.startArray();
+                pos += 9;
+                while (tape.get(pos) != END_ARRAY) {
+                    handler.startElement();
+                    pos = replay(pos, handler);
+                    handler.endElement();
+                }
+                handler.endArray();
+                return pos + 1;
+            default:
+                throw new IllegalArgumentException("No value at " + pos);
+        }
+    }
+
+    private boolean hasValue(int pos) {
+        byte tag = tape.get(pos);
+        return tag != END_OBJECT && tag != END_ARRAY;
+    }
+
+    private byte check(int pos, byte... tags) {
+        byte tag = tape.get(pos);
+        for (byte t: tags) {
+            if (tag == t) {
+                return tag;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Unexpected entry '" + (char)tag + "' at " + pos);
+    }
+
+    /**
+     * Decodes a string of the pool. A lone surrogate is stored in three
+     * bytes like any other char, which a standard decoder would replace
+     * with U+FFFD.
+     */
+    private String text(int offset) {
+        int length = strings.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer src = strings.duplicate();
+        src.position(offset + 4);
+        src.get(bytes);
+        char[] chars = new char[length];
+        int n = 0;
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i++];
+            if (b >= 0) {
+                chars[n++] = (char)b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[n++] = (char)((b & 0x1F) << 6 | bytes[i++] & 0x3F);
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[n++] = (char)((b & 0x0F) << 12
+                        | (bytes[i++] & 0x3F) << 6 | bytes[i++] & 0x3F);
+            } else {
+                int cp = (b & 0x07) << 18 | (bytes[i++] & 0x3F) << 12
+                        | (bytes[i++] & 0x3F) << 6 | bytes[i++] & 0x3F;
+                chars[n++] = Character.highSurrogate(cp);
+                chars[n++] = Character.lowSurrogate(cp);
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Compares a string of the pool with a name without decoding it: both
+     * are compared as UTF-8.
+     */
+    private boolean textEquals(int offset, String name) {
+        int length = strings.getInt(offset);
+        int pos = offset + 4;
+        int end = pos + length;
+        int nameLength = name.length();
+        for (int i = 0; i < nameLength; ++i) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                return text(offset).equals(name);
+            } else if (pos >= end || strings.get(pos++) != c) {
+                return false;
+            }
+        }
+        return pos == end;
+    }
+}
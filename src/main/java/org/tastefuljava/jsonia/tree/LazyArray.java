@@ -0,0 +1,53 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A read-only array of a {@link LazyDocument}. The positions of its
+ * elements are found on the first access, and each element is decoded when
+ * it is first read.
+ */
+public class LazyArray extends AbstractList<Object> implements RandomAccess {
+    private static final Object UNREAD = new Object();
+
+    private final LazyDocument doc;
+    private final int start;
+    private int[] positions;
+    private Object[] values;
+
+    LazyArray(LazyDocument doc, int start) {
+        this.doc = doc;
+        this.start = start;
+    }
+
+    private synchronized int[] positions() {
+        if (positions == null) {
+            positions = doc.elements(start);
+        }
+        return positions;
+    }
+
+    @Override
+    public synchronized Object get(int index) {
+        int[] elements = positions();
+        if (index < 0 || index >= elements.length) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        if (values == null) {
+            values = new Object[elements.length];
+            Arrays.fill(values, UNREAD);
+        }
+        Object value = values[index];
+        if (value == UNREAD) {
+            value = values[index] = doc.value(elements[index]);
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return positions().length;
+    }
+}
@@ -0,0 +1,125 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import org.tastefuljava.jsonia.producer.JSonParser;
+import org.tastefuljava.jsonia.producer.JSonReader;
+import org.tastefuljava.jsonia.producer.StructuralIndex;
+
+/**
+ * A document that is validated and indexed once, and decoded on demand:
+ * its objects and arrays are {@link LazyObject}s and {@link LazyArray}s
+ * that decode their children the first time they are accessed, and keep
+ * them. Until then, a value costs nothing but its part of the source and
+ * of the index.
+ */
+public class LazyDocument {
+    private final byte[] data;
+    private final StructuralIndex index;
+
+    private LazyDocument(byte[] data, StructuralIndex index) {
+        this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * Returns the top-level value of a UTF-8 document; the array is not
+     * copied, and must not be changed afterwards.
+     */
+    public static Object read(byte[] data) throws IOException {
+        try (JSonReader reader = new JSonReader(data)) {
+            reader.nextToken();
+            reader.skipValue();
+        }
+        StructuralIndex index = StructuralIndex.build(data);
+        if (index.skip(0) != index.size()) {
+            throw new IOException("End of file expected");
+        }
+        return new LazyDocument(data, index).value(0);
+    }
+
+    Object value(int i) {
+        switch (index.byteAt(i)) {
+            case '{':
+                return new LazyObject(this, i);
+            case '[':
+                return new LazyArray(this, i);
+            default:
+                // a scalar ends before the next structural character
+                int offset = index.offset(i);
+                int end = i + 1 < index.size()
+                        ? index.offset(i + 1) : data.length;
+                JSonGenericBuilder builder = new JSonGenericBuilder();
+                try {
+                    JSonParser.parse(data, offset, end - offset, builder);
+                } catch (IOException e) {
+                    // the document has been validated
+                    throw new UncheckedIOException(e);
+                }
+                return builder.getTop();
+        }
+    }
+
+    /**
+     * Returns the names of the fields of the object that starts at the i-th
+     * structural character, with references to their values.
+     */
+    JSonObject fields(int i) {
+        int count = 0;
+        for (int j = i + 1; index.byteAt(j) != '}';
+                j = index.skip(j + 2)) {
+            ++count;
+            if (index.byteAt(j) == ',') {
+                ++j;
+            }
+        }
+        String[] names = new String[count];
+        Object[] refs = new Object[count];
+        int j = i + 1;
+        for (int k = 0; k < count; ++k) {
+            if (index.byteAt(j) == ',') {
+                ++j;
+            }
+            names[k] = (String)value(j);
+            refs[k] = new Ref(j + 2);
+            j = index.skip(j + 2);
+        }
+        return new JSonObject(names, refs);
+    }
+
+    /**
+     * Returns the positions of the elements of the array that starts at the
+     * i-th structural character.
+     */
+    int[] elements(int i) {
+        int count = 0;
+        for (int j = i + 1; index.byteAt(j) != ']'; j = index.skip(j)) {
+            ++count;
+            if (index.byteAt(j) == ',') {
+                ++j;
+            }
+        }
+        int[] result = new int[count];
+        int j = i + 1;
+        for (int k = 0; k < count; ++k) {
+            if (index.byteAt(j) == ',') {
+                ++j;
+            }
+            result[k] = j;
+            j = index.skip(j);
+        }
+        return result;
+    }
+
+    /**
+     * The position of a value that has not been decoded yet.
+     */
+    static final class Ref {
+        final int position;
+
+        Ref(int position) {
+            this.position = position;
+        }
+    }
+}
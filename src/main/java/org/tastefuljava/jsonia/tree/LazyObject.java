@@ -0,0 +1,87 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only object of a {@link LazyDocument}. The names of its fields are
+ * decoded on the first access, and each value when it is first read.
+ */
+public class LazyObject extends AbstractMap<String,Object> {
+    private final LazyDocument doc;
+    private final int start;
+    private JSonObject fields;
+
+    LazyObject(LazyDocument doc, int start) {
+        this.doc = doc;
+        this.start = start;
+    }
+
+    private synchronized JSonObject fields() {
+        if (fields == null) {
+            fields = doc.fields(start);
+        }
+        return fields;
+    }
+
+    private synchronized Object value(int i) {
+        Object value = fields.getValue(i);
+        if (value instanceof LazyDocument.Ref) {
+            value = doc.value(((LazyDocument.Ref)value).position);
+            fields.setValue(i, value);
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return fields().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return fields().indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = fields().indexOf(key);
+        return i < 0 ? null : value(i);
+    }
+
+    @Override
+    public Set<Entry<String,Object>> entrySet() {
+        JSonObject names = fields();
+        return new AbstractSet<Entry<String,Object>>() {
+            @Override
+            public int size() {
+                return names.size();
+            }
+
+            @Override
+            public Iterator<Entry<String,Object>> iterator() {
+                return new Iterator<Entry<String,Object>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.size();
+                    }
+
+                    @Override
+                    public Entry<String,Object> next() {
+                        if (next >= names.size()) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(
+                                names.getName(i), value(i));
+                    }
+                };
+            }
+        };
+    }
+}
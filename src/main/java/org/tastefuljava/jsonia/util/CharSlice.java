@@ -0,0 +1,69 @@
+package org.tastefuljava.jsonia.util;
+
+/**
+ * A reusable view over a range of a char array. The content is only valid
+ * until the slice is reset or the array is modified.
+ */
+public class CharSlice implements CharSequence {
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    public CharSlice() {
+    }
+
+    public CharSlice(char[] chars, int offset, int length) {
+        reset(chars, offset, length);
+    }
+
+    public CharSlice reset(char[] chars, int offset, int length) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "Range: " + start + "-" + end);
+        }
+        return new String(chars, offset + start, end - start);
+    }
+
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        if (srcBegin < 0 || srcEnd > length || srcBegin > srcEnd) {
+            throw new IndexOutOfBoundsException(
+                    "Range: " + srcBegin + "-" + srcEnd);
+        }
+        System.arraycopy(chars, offset + srcBegin, dst, dstBegin,
+                srcEnd - srcBegin);
+    }
+
+    /**
+     * Returns the canonical String with the content of this slice from the
+     * given table.
+     */
+    public String toString(SymbolTable symbols) {
+        return symbols.get(chars, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+}
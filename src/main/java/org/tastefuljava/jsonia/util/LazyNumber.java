@@ -0,0 +1,92 @@
+package org.tastefuljava.jsonia.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A number as it appeared in the JSon source, converted only on demand.
+ */
+public class LazyNumber extends Number {
+    private static final long serialVersionUID = 1L;
+
+    private final long unscaled;
+    private final int scale;
+    private final String text;
+
+    public LazyNumber(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.text = null;
+    }
+
+    public LazyNumber(String text) {
+        this.unscaled = 0;
+        this.scale = 0;
+        this.text = text;
+    }
+
+    public BigDecimal bigDecimalValue() {
+        return text == null
+                ? BigDecimal.valueOf(unscaled, scale) : new BigDecimal(text);
+    }
+
+    public BigInteger bigIntegerValue() {
+        if (text == null && scale == 0) {
+            return BigInteger.valueOf(unscaled);
+        }
+        return bigDecimalValue().toBigInteger();
+    }
+
+    @Override
+    public int intValue() {
+        return (int)longValue();
+    }
+
+    @Override
+    public long longValue() {
+        if (text == null && scale == 0) {
+            return unscaled;
+        }
+        return bigDecimalValue().longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return Float.parseFloat(toString());
+    }
+
+    @Override
+    public double doubleValue() {
+        if (text == null) {
+            double result = Numbers.toDouble(unscaled < 0,
+                    Math.abs(unscaled), -scale, false);
+            if (!Double.isNaN(result)) {
+                return result;
+            }
+        }
+        return Numbers.parseDouble(toString());
+    }
+
+    @Override
+    public String toString() {
+        return text != null
+                ? text : BigDecimal.valueOf(unscaled, scale).toPlainString();
+    }
+
+    @Override
+    public int hashCode() {
+        return bigDecimalValue().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final LazyNumber other = (LazyNumber) obj;
+        return bigDecimalValue().equals(other.bigDecimalValue());
+    }
+}
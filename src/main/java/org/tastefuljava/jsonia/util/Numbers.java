@@ -0,0 +1,308 @@
+package org.tastefuljava.jsonia.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class Numbers {
+    private static final int MAX_DIGITS = 19;
+    private static final int MIN_EXPONENT = -342;
+    private static final int MAX_EXPONENT = 308;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private Numbers() {
+    }
+
+    /**
+     * Converts the text of a JSon number to an Integer, a Long or a
+     * BigInteger when it has neither a fraction nor an exponent, to a
+     * BigDecimal when it has a fraction but no exponent, and to a Double
+     * otherwise.
+     */
+    public static Number toNumber(CharSequence s) {
+        int len = s.length();
+        boolean hasFrac = false;
+        for (int i = 0; i < len; ++i) {
+            char c = s.charAt(i);
+            if (c == 'e' || c == 'E') {
+                return parseDouble(s);
+            } else if (c == '.') {
+                hasFrac = true;
+            }
+        }
+        int i = 0;
+        boolean negative = len > 0 && s.charAt(0) == '-';
+        if (negative) {
+            ++i;
+        }
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < len; ++i) {
+            char c = s.charAt(i);
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (isDigit(c) && digits < MAX_DIGITS - 1) {
+                unscaled = 10*unscaled + c - '0';
+                if (unscaled != 0) {
+                    ++digits;
+                }
+                if (scale >= 0) {
+                    ++scale;
+                }
+            } else {
+                // too many digits, or not a number: let Java decide
+                return hasFrac ? new BigDecimal(s.toString())
+                        : toInteger(new BigInteger(s.toString()));
+            }
+        }
+        if (negative) {
+            unscaled = -unscaled;
+        }
+        if (hasFrac) {
+            return BigDecimal.valueOf(unscaled, scale);
+        } else if (unscaled < Integer.MIN_VALUE
+                || unscaled > Integer.MAX_VALUE) {
+            return unscaled;
+        } else {
+            return (int)unscaled;
+        }
+    }
+
+    private static Number toInteger(BigInteger value) {
+        if (value.bitLength() >= 64) {
+            return value;
+        }
+        long l = value.longValue();
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            return l;
+        }
+        return (int)l;
+    }
+
+    /**
+     * Parses a JSon number as a double, falling back to
+     * {@link Double#parseDouble(String)} only in the rare cases that the
+     * fast path cannot decide.
+     */
+    public static double parseDouble(CharSequence s) {
+        int len = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < len && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        boolean valid = false;
+        while (i < len && isDigit(s.charAt(i))) {
+            int d = s.charAt(i++) - '0';
+            if (digits < MAX_DIGITS) {
+                mantissa = 10*mantissa + d;
+                if (mantissa != 0) {
+                    ++digits;
+                }
+            } else {
+                ++exponent;
+                truncated |= d != 0;
+            }
+            valid = true;
+        }
+        if (i < len && s.charAt(i) == '.') {
+            ++i;
+            while (i < len && isDigit(s.charAt(i))) {
+                int d = s.charAt(i++) - '0';
+                if (digits < MAX_DIGITS) {
+                    mantissa = 10*mantissa + d;
+                    if (mantissa != 0) {
+                        ++digits;
+                    }
+                    --exponent;
+                } else {
+                    truncated |= d != 0;
+                }
+                valid = true;
+            }
+        }
+        if (valid && i < len && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            ++i;
+            boolean negExp = false;
+            if (i < len && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negExp = s.charAt(i) == '-';
+                ++i;
+            }
+            valid = i < len;
+            int exp = 0;
+            while (i < len && isDigit(s.charAt(i))) {
+                if (exp < 100000) {
+                    exp = 10*exp + s.charAt(i) - '0';
+                }
+                ++i;
+            }
+            exponent += negExp ? -exp : exp;
+        }
+        double result = Double.NaN;
+        if (valid && i == len) {
+            result = toDouble(negative, mantissa, exponent, truncated);
+        }
+        if (Double.isNaN(result)) {
+            result = Double.parseDouble(s.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the double nearest to mantissa*10^exponent, where the
+     * mantissa is an unsigned value of at most 19 decimal digits. When
+     * <code>truncated</code> is true, digits have been dropped from the
+     * mantissa. Returns NaN when the result cannot be decided without
+     * the full decimal representation.
+     */
+    public static double toDouble(boolean negative, long mantissa,
+            int exponent, boolean truncated) {
+        double result = toDouble(negative, mantissa, exponent);
+        if (truncated && result != toDouble(negative, mantissa+1, exponent)) {
+            return Double.NaN;
+        }
+        return result;
+    }
+
+    private static double toDouble(boolean negative, long mantissa,
+            int exponent) {
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        double result;
+        if (exponent >= -22 && exponent <= 22
+                && mantissa >= 0 && mantissa <= 1L << 53) {
+            // both operands are exact, so is the rounded result
+            result = mantissa;
+            if (exponent < 0) {
+                result /= POWERS_OF_TEN[-exponent];
+            } else {
+                result *= POWERS_OF_TEN[exponent];
+            }
+        } else {
+            result = eiselLemire(mantissa, exponent);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Daniel Lemire's algorithm (Number Parsing at a Gigabyte per Second,
+     * 2021), derived from the work of Michael Eisel.
+     */
+    private static double eiselLemire(long w, int q) {
+        if (q < MIN_EXPONENT) {
+            return 0.0;
+        } else if (q > MAX_EXPONENT) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+        int index = 2*(q - MIN_EXPONENT);
+        long[] powers = PowersOfFive.TABLE;
+        long hi = unsignedMultiplyHigh(w, powers[index]);
+        long lo = w*powers[index];
+        if ((hi & 0x1FF) == 0x1FF) {
+            long hi2 = unsignedMultiplyHigh(w, powers[index+1]);
+            lo += hi2;
+            if (Long.compareUnsigned(hi2, lo) > 0) {
+                ++hi;
+            }
+            if (lo == -1L && (hi & 0x1FF) == 0x1FF) {
+                return Double.NaN;
+            }
+        }
+        int upperBit = (int)(hi >>> 63);
+        int shift = upperBit + 9;
+        long mantissa = hi >>> shift;
+        int power2 = ((217706*q) >> 16) + 63 + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            // subnormal
+            if (-power2 + 1 >= 64) {
+                return 0.0;
+            }
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = mantissa < 1L << 52 ? 0 : 1;
+            return Double.longBitsToDouble(((long)power2 << 52) | mantissa);
+        }
+        if (Long.compareUnsigned(lo, 1) <= 0 && q >= -4 && q <= 23
+                && (mantissa & 3) == 1 && mantissa << shift == hi) {
+            // exactly halfway between two doubles: round to even
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 2L << 52) {
+            mantissa = 1L << 52;
+            ++power2;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.longBitsToDouble(((long)power2 << 52) | mantissa);
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        long aLo = a & 0xFFFFFFFFL;
+        long aHi = a >>> 32;
+        long bLo = b & 0xFFFFFFFFL;
+        long bHi = b >>> 32;
+        long hiLo = aHi*bLo;
+        long cross = ((aLo*bLo) >>> 32) + (hiLo & 0xFFFFFFFFL) + aLo*bHi;
+        return aHi*bHi + (hiLo >>> 32) + (cross >>> 32);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 128-bit approximations of the powers of five from 5^-342 to 5^308,
+     * normalized so that the most significant bit is set; computed once,
+     * on first use.
+     */
+    private static class PowersOfFive {
+        private static final long[] TABLE = computeTable();
+
+        private static long[] computeTable() {
+            long[] table = new long[2*(MAX_EXPONENT - MIN_EXPONENT + 1)];
+            BigInteger five = BigInteger.valueOf(5);
+            BigInteger power = five.pow(-MIN_EXPONENT);
+            for (int q = MIN_EXPONENT; q < 0; ++q) {
+                int z = power.bitLength();
+                int b = q >= -27 ? z + 127 : 2*z + 128;
+                BigInteger c = BigInteger.ONE.shiftLeft(b).divide(power)
+                        .add(BigInteger.ONE);
+                store(table, q, truncate(c));
+                power = power.divide(five);
+            }
+            for (int q = 0; q <= MAX_EXPONENT; ++q) {
+                store(table, q, truncate(power));
+                power = power.multiply(five);
+            }
+            return table;
+        }
+
+        private static BigInteger truncate(BigInteger c) {
+            int bits = c.bitLength();
+            return bits > 128 ? c.shiftRight(bits - 128)
+                    : c.shiftLeft(128 - bits);
+        }
+
+        private static void store(long[] table, int q, BigInteger c) {
+            int index = 2*(q - MIN_EXPONENT);
+            table[index] = c.shiftRight(64).longValue();
+            table[index+1] = c.longValue();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.tastefuljava.jsonia.util;
+
+/**
+ * A bounded cache of canonical Strings, looked up by their chars so that a
+ * String is only created the first time a symbol is seen. A table can be
+ * shared between threads: slots are written without locking, and a lost
+ * update only costs an extra String.
+ */
+public class SymbolTable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final int MAX_PROBES = 8;
+
+    private final String[] symbols;
+    private final int mask;
+    private final int maxLength;
+
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Creates a table holding at most <code>capacity</code> symbols
+     * (rounded up to a power of two) of at most <code>maxLength</code>
+     * chars; longer strings are never cached.
+     */
+    public SymbolTable(int capacity, int maxLength) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.symbols = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    public String get(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = 0; i < length; ++i) {
+            hash = 31*hash + chars[offset + i];
+        }
+        String[] table = symbols;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        for (int probe = 0; probe < MAX_PROBES; ++probe) {
+            int slot = (index + probe) & mask;
+            String symbol = table[slot];
+            if (symbol == null) {
+                symbol = new String(chars, offset, length);
+                table[slot] = symbol;
+                return symbol;
+            } else if (symbol.hashCode() == hash
+                    && matches(symbol, chars, offset, length)) {
+                return symbol;
+            }
+        }
+        // the neighbourhood is full: evict the first entry
+        String symbol = new String(chars, offset, length);
+        table[index] = symbol;
+        return symbol;
+    }
+
+    private static boolean matches(String symbol, char[] chars, int offset,
+            int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (symbol.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
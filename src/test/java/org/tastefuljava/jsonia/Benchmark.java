@@ -0,0 +1,138 @@
+package org.tastefuljava.jsonia;
+
+import java.io.IOException;
+
+/**
+ * The harness of the benchmarks in the tests. They are not unit tests but
+ * programs with a main method; run them after <code>mvn test-compile</code>
+ * with:
+ * <pre>
+ * java -cp target/classes:target/test-classes &lt;class&gt; [count]
+ * </pre>
+ * Each measure is the best time of a number of rounds, after the first
+ * ones have warmed up the JIT.
+ */
+public class Benchmark {
+    public static final int ROUNDS = 15;
+
+    public interface Task {
+        void run() throws IOException;
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * Returns the count given as the first argument, or the default.
+     */
+    public static int count(String[] args, int defaultCount) {
+        return args.length > 0 ? Integer.parseInt(args[0]) : defaultCount;
+    }
+
+    /**
+     * Runs the task for a number of rounds, and returns the best time in
+     * nanoseconds.
+     */
+    public static long best(Task task) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; ++i) {
+            long tm = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - tm);
+        }
+        return best;
+    }
+
+    /**
+     * Prints a time with the throughput for the given number of bytes.
+     */
+    public static void report(String name, long tm, long bytes) {
+        System.out.format("  %-18s %7.1f ms, %6.1f MB/s%n", name, tm/1e6,
+                bytes/(tm/1e3));
+    }
+
+    /**
+     * A handler that only counts the events.
+     */
+    public static class Counter implements JSonHandler {
+        private long events;
+
+        public long getEvents() {
+            return events;
+        }
+
+        public void reset() {
+            events = 0;
+        }
+
+        @Override
+        public void startObject() {
+            ++events;
+        }
+
+        @Override
+        public void endObject() {
+            ++events;
+        }
+
+        @Override
+        public void startField(String name) {
+            ++events;
+        }
+
+        @Override
+        public void endField(String name) {
+            ++events;
+        }
+
+        @Override
+        public void startArray() {
+            ++events;
+        }
+
+        @Override
+        public void endArray() {
+            ++events;
+        }
+
+        @Override
+        public void startElement() {
+            ++events;
+        }
+
+        @Override
+        public void endElement() {
+            ++events;
+        }
+
+        @Override
+        public void handleNull() {
+            ++events;
+        }
+
+        @Override
+        public void handleBoolean(boolean value) {
+            ++events;
+        }
+
+        @Override
+        public void handleNumber(Number value) {
+            ++events;
+        }
+
+        @Override
+        public void handleString(String value) {
+            ++events;
+        }
+
+        @Override
+        public void handleLong(long value) {
+            ++events;
+        }
+
+        @Override
+        public void handleDouble(double value) {
+            ++events;
+        }
+    }
+}
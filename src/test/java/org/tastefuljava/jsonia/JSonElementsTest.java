@@ -0,0 +1,134 @@
+package org.tastefuljava.jsonia;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSonElementsTest {
+    private static final String JSON = "{\"meta\":{\"items\":[0]},"
+            + "\"data\":{\"skipped\":[{\"id\":-1}],\"items\":["
+            + "{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"\\u00e9\"},"
+            + "{\"id\":3}],\"after\":\"not read\"},\"none\":null}";
+
+    @Test
+    public void testTopLevel() throws IOException {
+        List<Record> records = new ArrayList<>();
+        JSon.forEach(new StringReader("[{\"id\":1},{\"id\":2,\"name\":\"b\"}]"),
+                Record.class, records::add);
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(1).id);
+        assertEquals("b", records.get(1).name);
+        try (JSonElements<Object> elements = JSon.stream(
+                new StringReader("[1, \"x\", {\"a\": [true]}, []]"),
+                Object.class)) {
+            assertEquals(Arrays.asList(1, "x",
+                    Collections.singletonMap("a", Arrays.asList(true)),
+                    Collections.emptyList()),
+                    elements.stream().collect(Collectors.toList()));
+        }
+        assertFalse(JSon.stream(new StringReader(" [ ] "), Record.class)
+                .hasNext());
+    }
+
+    @Test
+    public void testPath() throws IOException {
+        List<Record> records = new ArrayList<>();
+        JSon.forEach(new ByteArrayInputStream(
+                JSON.getBytes(StandardCharsets.UTF_8)), Record.class,
+                records::add, "data", "items");
+        assertEquals(3, records.size());
+        assertEquals("\u00e9", records.get(1).name);
+        assertEquals(3, records.get(2).id);
+        for (String[] path: new String[][] {{"missing"}, {"none"},
+                {"none", "items"}, {"data", "items", "id"}}) {
+            JSonElements<Record> elements = JSon.stream(
+                    new StringReader(JSON), Record.class, path);
+            if (path.length < 3) {
+                assertFalse(elements.hasNext());
+            } else {
+                try {
+                    elements.hasNext();
+                    fail("No error");
+                } catch (UncheckedIOException e) {
+                    // expected: an array is not an object
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        for (String json: new String[] {"{}", "[{\"id\":1},", "[{\"id\":1} 2]",
+                "[{\"id\":\"x\"}]", "[1}"}) {
+            try {
+                JSon.forEach(new StringReader(json), Record.class, r -> { });
+                fail("No error: " + json);
+            } catch (IOException | RuntimeException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLarge() throws IOException {
+        // the input is generated as it is read, and never held in memory
+        int count = 200000;
+        int[] total = {0};
+        JSon.forEach(new Generator(count), Record.class, r -> {
+            assertTrue(r.id == total[0]);
+            ++total[0];
+        });
+        assertEquals(count, total[0]);
+    }
+
+    public static class Record {
+        private int id;
+        private String name;
+    }
+
+    private static class Generator extends Reader {
+        private final int count;
+        private int next = -1;
+        private String pending = "[";
+        private int pos;
+
+        private Generator(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos >= pending.length()) {
+                if (next >= count) {
+                    return -1;
+                }
+                ++next;
+                pending = next == count ? "]"
+                        : (next == 0 ? "" : ",") + "{\"id\":" + next
+                        + ",\"name\":\"record " + next + "\"}";
+                pos = 0;
+            }
+            int n = Math.min(len, pending.length() - pos);
+            pending.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
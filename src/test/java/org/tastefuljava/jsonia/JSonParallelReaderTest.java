@@ -0,0 +1,180 @@
+package org.tastefuljava.jsonia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JSonParallelReaderTest {
+    private static final int COUNT = 20000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOrdered() throws IOException {
+        byte[] data = ndjson();
+        File file = folder.newFile("records.ndjson");
+        Files.write(file.toPath(), data);
+        List<Record> records = new ArrayList<>();
+        JSon.readParallel(file, Record.class, records::add);
+        check(records);
+
+        JSonParallelReader<Record> reader
+                = new JSonParallelReader<>(Record.class);
+        reader.setBatchSize(1000);
+        reader.setParallelism(3);
+        for (ByteBuffer buffer: new ByteBuffer[] {
+                ByteBuffer.wrap(data), direct(data)}) {
+            records.clear();
+            reader.read(buffer, records::add);
+            check(records);
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void testUnordered() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JSonParallelReader<Object> reader
+                    = new JSonParallelReader<>(Object.class);
+            reader.setBatchSize(777);
+            reader.setExecutor(executor);
+            reader.setOrdered(false);
+            List<Record> records = new ArrayList<>();
+            reader.read(ByteBuffer.wrap(ndjson()), (obj) -> {
+                Map<?,?> map = (Map<?,?>)obj;
+                Record record = new Record();
+                record.id = ((Number)map.get("id")).intValue();
+                record.name = (String)map.get("name");
+                records.add(record);
+            });
+            Collections.sort(records, (a, b) -> Integer.compare(a.id, b.id));
+            check(records);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        String ndjson = "{\"id\":0}\n{\"id\":1,}\n{\"id\":2}\n@\n{\"id\":3}";
+        ByteBuffer data = ByteBuffer.wrap(
+                ndjson.getBytes(StandardCharsets.UTF_8));
+        JSonParallelReader<Record> reader
+                = new JSonParallelReader<>(Record.class);
+        reader.setBatchSize(5);
+        try {
+            reader.read(data, (record) -> { });
+            fail("No error");
+        } catch (IOException e) {
+            // expected
+        }
+        List<Long> offsets = new ArrayList<>();
+        reader.setErrorHandler((e, offset) -> offsets.add(offset));
+        List<Integer> ids = new ArrayList<>();
+        reader.read(data, (record) -> ids.add(record.id));
+        assertEquals(Arrays.asList(0, 2, 3), ids);
+        assertEquals(Arrays.asList(9L, 28L), offsets);
+    }
+
+    @Test
+    public void testArray() throws IOException {
+        byte[] data = array();
+        File file = folder.newFile("records.json");
+        Files.write(file.toPath(), data);
+        checkArray(JSon.readArrayParallel(file, Record.class));
+
+        JSonParallelReader<Record> reader
+                = new JSonParallelReader<>(Record.class);
+        reader.setParallelism(3);
+        for (int batchSize: new int[] {1, 100, 1000}) {
+            reader.setBatchSize(batchSize);
+            checkArray(reader.readArray(file));
+            checkArray(reader.readArray(direct(data)));
+        }
+        assertEquals(0, reader.readArray(ByteBuffer.wrap(
+                " [ ] ".getBytes(StandardCharsets.UTF_8))).size());
+    }
+
+    @Test
+    public void testArrayErrors() {
+        JSonParallelReader<Object> reader
+                = new JSonParallelReader<>(Object.class);
+        reader.setBatchSize(1);
+        for (String json: new String[] {"", "{}", "[1,2", "[1,2}",
+                "[1,2] 3", "[1,,2]", "[1,2,]", "[1 2]", "[\"a\",\"b]"}) {
+            try {
+                reader.readArray(ByteBuffer.wrap(
+                        json.getBytes(StandardCharsets.UTF_8)));
+                fail("No error: " + json);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void checkArray(List<Record> records) {
+        assertEquals(COUNT, records.size());
+        for (int i = 0; i < COUNT; ++i) {
+            assertEquals(i, records.get(i).id);
+            assertEquals("[\"" + i + "\"], {\\}", records.get(i).name);
+        }
+    }
+
+    private static byte[] array() {
+        StringBuilder buf = new StringBuilder("[\n");
+        for (int i = 0; i < COUNT; ++i) {
+            if (i > 0) {
+                buf.append(",\n");
+            }
+            buf.append("{\"id\":").append(i)
+                    .append(",\"name\":\"[\\\"").append(i)
+                    .append("\\\"], {\\\\}\"}");
+        }
+        return buf.append("\n]\n").toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void check(List<Record> records) {
+        assertEquals(COUNT, records.size());
+        for (int i = 0; i < COUNT; ++i) {
+            assertEquals(i, records.get(i).id);
+            assertEquals("record " + i, records.get(i).name);
+        }
+    }
+
+    private static byte[] ndjson() {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < COUNT; ++i) {
+            buf.append("{\"id\":").append(i).append(",\"name\":\"record ")
+                    .append(i).append("\"}\n");
+        }
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer direct(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        return buffer;
+    }
+
+    public static class Record {
+        private int id;
+        private String name;
+    }
+}
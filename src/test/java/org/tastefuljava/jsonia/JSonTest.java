@@ -3,11 +3,21 @@ package org.tastefuljava.jsonia;
 import org.tastefuljava.jsonia.JSonHandler;
 import org.tastefuljava.jsonia.JSon;
 import org.tastefuljava.jsonia.handler.JSonFormatter;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
 import org.tastefuljava.jsonia.producer.JSonParser;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -16,7 +26,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.junit.After;
 import org.junit.AfterClass;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
@@ -125,6 +137,168 @@ public class JSonTest {
         }
     }
 
+    @Test
+    public void testPrimitives() throws IOException {
+        String json = "{\"l\":-9223372036854775808,\"i\":-7,\"d\":0.1,"
+                + "\"f\":2.5e-1,\"s\":300,\"b\":-8,"
+                + "\"bi\":123456789012345678901234567890,"
+                + "\"bd\":12345678901234567890.123456789}";
+        Primitives p = JSon.read(json, Primitives.class);
+        assertEquals(Long.MIN_VALUE, p.l);
+        assertEquals(-7, p.i);
+        assertEquals(0.1, p.d, 0);
+        assertEquals(0.25f, p.f, 0);
+        assertEquals(300, p.s);
+        assertEquals(-8, p.b);
+        assertEquals(new BigInteger("123456789012345678901234567890"), p.bi);
+        assertEquals(new BigDecimal("12345678901234567890.123456789"), p.bd);
+        // integers and decimals are written exactly
+        assertEquals(json.replace("2.5e-1", "0.25"),
+                JSon.stringify(p, false));
+    }
+
+    @Test
+    public void testPrimitiveArrays() throws IOException {
+        String json = "{\"ints\":[1,-2,3.7],"
+                + "\"longs\":[9223372036854775807],\"doubles\":[0.5,2,1e400,12345678901234567890.5],"
+                + "\"matrix\":[[1,2],[],[3]]}";
+        PrimitiveArrays arrays = JSon.read(json, PrimitiveArrays.class);
+        assertArrayEquals(new int[] {1, -2, 3}, arrays.ints);
+        assertArrayEquals(new long[] {Long.MAX_VALUE}, arrays.longs);
+        assertArrayEquals(new double[] {0.5, 2, Double.POSITIVE_INFINITY,
+                12345678901234567890.5}, arrays.doubles, 0);
+        assertEquals(3, arrays.matrix.length);
+        assertArrayEquals(new int[] {1, 2}, arrays.matrix[0]);
+        assertArrayEquals(new int[0], arrays.matrix[1]);
+        assertArrayEquals(new int[] {3}, arrays.matrix[2]);
+        int[] large = JSon.read(Arrays.toString(new int[100]), int[].class);
+        assertEquals(100, large.length);
+        assertArrayEquals(new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE},
+                JSon.read("[1e10,-1e10]", int[].class));
+        for (String invalid: new String[] {"[1,null]", "[1,\"a\"]",
+                "[1,[2]]"}) {
+            try {
+                JSon.read(invalid, int[].class);
+                fail("No error: " + invalid);
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        // the thread's builders and formatter are reused from call to call
+        for (int i = 0; i < 3; ++i) {
+            try {
+                JSon.read("{\"i\":[1,", Primitives.class);
+                fail("No error");
+            } catch (IOException e) {
+                // expected
+            }
+            Primitives p = JSon.read("{\"i\":" + i + "}", Primitives.class);
+            assertEquals(i, p.i);
+            assertArrayEquals(new int[] {i}, JSon.read("[" + i + "]",
+                    int[].class));
+            assertEquals(Arrays.asList(i), JSon.read("[" + i + "]"));
+            assertEquals("[" + i + "]", JSon.stringify(new int[] {i}, false));
+            assertEquals("[\n    " + i + "\n]",
+                    JSon.stringify(new int[] {i}, true));
+        }
+        // a call made while binding gets builders of its own
+        Outer outer = JSon.read("{\"payload\":\"{\\\"l\\\":5}\","
+                + "\"name\":\"x\"}", Outer.class);
+        assertEquals(5, outer.inner.l);
+        assertEquals("{\"l\":5}", outer.text);
+        assertEquals("x", outer.name);
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        String ndjson = "{\"i\":1}\n{\"i\":2} {\"i\":3}\n"
+                + "{\"i\":4,]}\n{\"i\":5\n{\"i\":6}\n@\n\n"
+                + "{\"i\":7,\n\"d\":1e1}";
+        for (int pass = 0; pass < 2; ++pass) {
+            List<Long> errors = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            List<Integer> values = new ArrayList<>();
+            try (JSonRecords<Primitives> records = pass == 0
+                    ? JSon.records(new StringReader(ndjson), Primitives.class)
+                    : JSon.records(new ByteArrayInputStream(
+                            ndjson.getBytes(StandardCharsets.UTF_8)),
+                            Primitives.class)) {
+                records.setErrorHandler((e, offset) -> errors.add(offset));
+                while (records.hasNext()) {
+                    values.add(records.next().i);
+                    offsets.add(records.getOffset());
+                }
+            }
+            assertEquals(Arrays.asList(1, 2, 3, 6, 7), values);
+            assertEquals(Arrays.asList(0L, 8L, 16L, 41L, 52L), offsets);
+            assertEquals(Arrays.asList(24L, 34L, 49L), errors);
+        }
+        try (JSonRecords<Object> records
+                = JSon.records(new StringReader("1 [2] {} \"x\" @ 3"))) {
+            assertEquals(4, records.stream().limit(4).count());
+            try {
+                records.next();
+                fail("No error");
+            } catch (UncheckedIOException e) {
+                // expected
+            }
+            assertFalse(records.hasNext());
+        }
+    }
+
+    @Test
+    public void testBufferBoundaries() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            buf.append("abc\\\\\\\"\\u00e9");
+        }
+        String json = "{\"long\": \"" + buf + "\", \"numbers\": "
+                + "[0, -12, 12345678901, 1.5e3, -0.25, true, false, null]}";
+        Object expected = JSon.read(json);
+        Object actual = JSon.read(new FilterReader(new StringReader(json)) {
+            @Override
+            public int read(char[] cbuf, int off, int len)
+                    throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        });
+        assertEquals(expected, actual);
+        Map<?,?> map = (Map<?,?>)actual;
+        String s = (String)map.get("long");
+        assertEquals(30000, s.length());
+        assertTrue(s.startsWith("abc\\\"\u00e9abc"));
+    }
+
+    @Test
+    public void testUtf8() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            buf.append("a\u00e9\u20ac\ud83d\ude00\\n");
+        }
+        String json = "{\"text\": \"" + buf + "\", \"\u00e9t\u00e9\": "
+                + "[1, -2.5, 3e2, true, null]}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Object expected = JSon.read(json);
+        assertEquals(expected, JSon.read(bytes));
+        assertEquals(expected, JSon.read(new FilterInputStream(
+                new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        }, "UTF-8"));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        JSonGenericBuilder builder = new JSonGenericBuilder();
+        JSonParser.parse(direct, builder);
+        assertEquals(expected, builder.getTop());
+        assertEquals(0, direct.position());
+    }
+
     @Test
     public void testLogger() {
         LOG.info("begin testLogger");
@@ -148,6 +322,35 @@ public class JSonTest {
         }
     }
 
+    public static class PrimitiveArrays {
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private int[][] matrix;
+    }
+
+    public static class Outer {
+        private Primitives inner;
+        private String text;
+        private String name;
+
+        public void setPayload(String payload) throws IOException {
+            inner = JSon.read(payload, Primitives.class);
+            text = JSon.stringify(JSon.read(payload), false);
+        }
+    }
+
+    public static class Primitives {
+        private long l;
+        private int i;
+        private double d;
+        private float f;
+        private short s;
+        private byte b;
+        private BigInteger bi;
+        private BigDecimal bd;
+    }
+
     public static class TestObject {
         private final BigDecimal number;
         private final Date date;
@@ -0,0 +1,130 @@
+package org.tastefuljava.jsonia;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The orders used by the benchmarks, as objects or as a document: objects
+ * nested three levels deep, and arrays of objects and of strings. The
+ * orders have fields, the lines have accessors. There is no enum, which
+ * {@link org.tastefuljava.jsonia.producer.JSonVisitor} cannot write.
+ */
+public class Orders {
+    private Orders() {
+    }
+
+    public static Order order(int i) {
+        Order order = new Order();
+        order.id = i;
+        order.status = status(i);
+        order.customer = new Customer();
+        order.customer.name = "customer " + (i % 100);
+        order.customer.address = new Address();
+        order.customer.address.street = "Main street " + i;
+        order.customer.address.city = "Lausanne";
+        order.customer.address.zip = 1000;
+        order.lines = new Line[5];
+        for (int j = 0; j < order.lines.length; ++j) {
+            Line line = new Line();
+            line.setProduct("P" + j);
+            line.setQuantity(j + 1);
+            line.setPrice(j + 0.25);
+            line.setTags(new String[] {"a", "b"});
+            order.lines[j] = line;
+        }
+        order.total = i + 0.5;
+        return order;
+    }
+
+    /**
+     * Returns an array of orders as UTF-8 bytes, with the same content as
+     * the objects returned by {@link #order}.
+     */
+    public static byte[] document(int count) {
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < count; ++i) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append("{\"id\":").append(i)
+                    .append(",\"status\":\"").append(status(i))
+                    .append("\",\"customer\":{\"name\":")
+                    .append("\"customer ").append(i % 100)
+                    .append("\",\"address\":{\"street\":\"Main street ")
+                    .append(i).append("\",\"city\":\"Lausanne\"")
+                    .append(",\"zip\":1000}},\"lines\":[");
+            for (int j = 0; j < 5; ++j) {
+                if (j > 0) {
+                    buf.append(',');
+                }
+                buf.append("{\"product\":\"P").append(j)
+                        .append("\",\"quantity\":").append(j + 1)
+                        .append(",\"price\":").append(j).append(".25")
+                        .append(",\"tags\":[\"a\",\"b\"]}");
+            }
+            buf.append("],\"total\":").append(i).append(".5}");
+        }
+        return buf.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String status(int i) {
+        return i % 3 == 0 ? "CLOSED" : "OPEN";
+    }
+
+    public static class Order {
+        private long id;
+        private String status;
+        private Customer customer;
+        private Line[] lines;
+        private double total;
+    }
+
+    public static class Customer {
+        private String name;
+        private Address address;
+    }
+
+    public static class Address {
+        private String street;
+        private String city;
+        private int zip;
+    }
+
+    public static class Line {
+        private String product;
+        private int quantity;
+        private double price;
+        private String[] tags;
+
+        public String getProduct() {
+            return product;
+        }
+
+        public void setProduct(String product) {
+            this.product = product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public void setTags(String[] tags) {
+            this.tags = tags;
+        }
+    }
+}
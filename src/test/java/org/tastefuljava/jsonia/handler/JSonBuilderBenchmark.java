@@ -0,0 +1,179 @@
+package org.tastefuljava.jsonia.handler;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import org.tastefuljava.jsonia.Benchmark;
+import org.tastefuljava.jsonia.Orders;
+import org.tastefuljava.jsonia.producer.JSonParser;
+import org.tastefuljava.jsonia.props.ClassDef;
+import org.tastefuljava.jsonia.props.PropertyDef;
+
+/**
+ * Measures the binding of a document of nested objects and arrays with a
+ * {@link JSonBuilder}, and with a {@link ListStackBuilder} that keeps its
+ * state as the builder first did, for comparison in the same run; see
+ * {@link Benchmark} to run it.
+ */
+public class JSonBuilderBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = Benchmark.count(args, 50000);
+        byte[] data = Orders.document(count);
+        System.out.format("%d orders, %d bytes%n", count, data.length);
+        long lists = Benchmark.best(() -> {
+            ListStackBuilder builder
+                    = new ListStackBuilder(Orders.Order[].class);
+            JSonParser.parse(data, builder);
+            check(builder, count);
+        });
+        long frames = Benchmark.best(() -> {
+            JSonBuilder builder = new JSonBuilder(Orders.Order[].class);
+            JSonParser.parse(data, builder);
+            check(builder, count);
+        });
+        System.out.format("best of %d:%n", Benchmark.ROUNDS);
+        Benchmark.report("list stack", lists, data.length);
+        Benchmark.report("JSonBuilder", frames, data.length);
+    }
+
+    private static void check(AbstractJSonBuilder builder, int count) {
+        if (((Orders.Order[])builder.getTop()).length != count) {
+            throw new IllegalStateException("Wrong count");
+        }
+    }
+
+    /**
+     * The builder before its stack of frames: the objects and the types are
+     * kept in lists that shift on every push and pop, and the class
+     * definition and the property are looked up at both ends of each field.
+     */
+    private static class ListStackBuilder extends AbstractJSonBuilder {
+        private final List<Object> stack = new ArrayList<>();
+        private Class<?> type;
+        private final List<Class<?>> typeStack = new ArrayList<>();
+
+        private ListStackBuilder(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void startObject() {
+            try {
+                stack.add(0, type.getConstructor().newInstance());
+            } catch (InstantiationException | IllegalAccessException
+                    | NoSuchMethodException | InvocationTargetException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+
+        @Override
+        public void endObject() {
+            top = stack.remove(0);
+        }
+
+        @Override
+        public void startField(String name) {
+            typeStack.add(0, type);
+            Object object = stack.get(0);
+            PropertyDef prop
+                    = ClassDef.forClass(object.getClass()).getProperty(name);
+            type = prop == null ? Object.class : prop.getType();
+        }
+
+        @Override
+        public void endField(String name) {
+            type = typeStack.remove(0);
+            Object object = stack.get(0);
+            PropertyDef prop
+                    = ClassDef.forClass(object.getClass()).getProperty(name);
+            if (prop != null && prop.canSet()) {
+                prop.set(object, convert(top, prop.getType()));
+            }
+        }
+
+        @Override
+        public void startArray() {
+            stack.add(0, new ArrayList<>());
+        }
+
+        @Override
+        public void endArray() {
+            top = stack.remove(0);
+            List<?> list = (List<?>) top;
+            if (type.isArray()) {
+                int length = list.size();
+                Class<?> elmType = type.getComponentType();
+                top = Array.newInstance(elmType, length);
+                for (int i = 0; i < length; ++i) {
+                    Array.set(top, i, convert(list.get(i), elmType));
+                }
+            } else if (type.isAssignableFrom(TreeSet.class)) {
+                top = new TreeSet<>(list);
+            } else if (type.isAssignableFrom(HashSet.class)) {
+                top = new HashSet<>(list);
+            }
+        }
+
+        @Override
+        public void startElement() {
+            typeStack.add(0, type);
+            if (type.isArray()) {
+                type = type.getComponentType();
+            } else if (Collection.class.isAssignableFrom(type)) {
+                type = Object.class;
+            }
+        }
+
+        @Override
+        public void endElement() {
+            type = typeStack.remove(0);
+            @SuppressWarnings(value = "unchecked")
+            List<Object> array = (List<Object>) stack.get(0);
+            array.add(top);
+        }
+
+        @Override
+        public void handleNull() {
+            top = null;
+        }
+
+        @Override
+        public void handleBoolean(boolean value) {
+            top = value;
+        }
+
+        @Override
+        public void handleNumber(Number value) {
+            top = value;
+        }
+
+        @Override
+        public void handleString(String value) {
+            top = value;
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if (value == null || type.isAssignableFrom(value.getClass())) {
+                return value;
+            } else if (value instanceof Number) {
+                Number number = (Number) value;
+                if (type == int.class || type == Integer.class) {
+                    return number.intValue();
+                } else if (type == long.class || type == Long.class) {
+                    return number.longValue();
+                } else if (type == double.class || type == Double.class) {
+                    return number.doubleValue();
+                } else if (type == BigDecimal.class) {
+                    return BigDecimal.valueOf(number.doubleValue());
+                }
+            }
+            throw new RuntimeException("Cannot convert value of type " + type);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.tastefuljava.jsonia.handler;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import org.tastefuljava.jsonia.tree.JSonArray;
+import org.tastefuljava.jsonia.tree.JSonDecimalArray;
+import org.tastefuljava.jsonia.tree.JSonDoubleArray;
+import org.tastefuljava.jsonia.tree.JSonLongArray;
+import org.tastefuljava.jsonia.tree.JSonObject;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSonTreeBuilderTest {
+    @Test
+    public void testSameAsGeneric() throws IOException {
+        StringBuilder buf = new StringBuilder("{\"small\":{\"a\":1,\"b\":"
+                + "[true,null,\"x\",{}],\"a\":2},\"ints\":[1,-2,3],"
+                + "\"nested\":[[1,2],[],[\"a\",[3]]],\"big\":{");
+        for (int i = 0; i < 40; ++i) {
+            buf.append("\"f").append(i % 30).append("\":").append(i)
+                    .append(',');
+        }
+        buf.append("\"last\":1.5},\"large\":[");
+        for (String format: new String[] {"%d", "%d.5", "\"%d\""}) {
+            buf.append('[');
+            for (int i = 0; i < 200; ++i) {
+                buf.append(i == 0 ? "" : ",").append(String.format(format, i));
+            }
+            buf.append("],");
+        }
+        buf.append("{}]}");
+        String json = buf.toString();
+        Object tree = JSon.readTree(json);
+        assertEquals(JSon.read(json), tree);
+        assertEquals(tree, JSon.readTree(JSon.stringify(tree, false)));
+
+        Map<?,?> root = (Map<?,?>)tree;
+        assertTrue(root instanceof JSonObject);
+        Map<?,?> small = (Map<?,?>)root.get("small");
+        assertEquals(2, small.size());
+        assertEquals(2, small.get("a"));
+        assertTrue(root.get("ints") instanceof JSonLongArray);
+        assertArrayEquals(new long[] {1, -2, 3},
+                ((JSonLongArray)root.get("ints")).toLongArray());
+        Map<?,?> big = (Map<?,?>)root.get("big");
+        assertEquals(31, big.size());
+        assertEquals(30, big.get("f0"));
+        assertEquals(39, big.get("f9"));
+        assertEquals(new BigDecimal("1.5"), big.get("last"));
+        assertTrue(big.containsKey("f29"));
+        assertFalse(big.containsKey("f30"));
+        assertNull(big.get("f30"));
+        try {
+            ((Map<String,Object>)big).put("f30", 0);
+            fail("Modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNumericArrays() throws IOException {
+        String[] arrays = {"[1e-3,2.5E1,-1e10]", "[0.5,2,-1.250,0.0]",
+                "[1,9007199254740993]", "[1,2,0.5,3]",
+                "[0.5,1e3,123456789012345678901.5,1,\"a\"]",
+                "[1,[2],3]", "[0.1,[2.5],[1e1]]"};
+        Class<?>[] types = {JSonDoubleArray.class, JSonDecimalArray.class,
+                JSonLongArray.class, JSonDecimalArray.class, JSonArray.class,
+                JSonArray.class, JSonArray.class};
+        for (int i = 0; i < arrays.length; ++i) {
+            Object tree = JSon.readTree(arrays[i]);
+            assertEquals(types[i], tree.getClass());
+            assertEquals(JSon.read(arrays[i]), tree);
+        }
+        JSonDecimalArray decimals
+                = (JSonDecimalArray)JSon.readTree("[0.5,2,-1.250]");
+        assertEquals(new BigDecimal("-1.250"), decimals.get(2));
+        assertEquals(2, decimals.get(1));
+        assertEquals(-1.25, decimals.getDouble(2), 0);
+        assertArrayEquals(new double[] {0.001, 25},
+                ((JSonDoubleArray)JSon.readTree("[1e-3,2.5E1]"))
+                        .toDoubleArray(), 0);
+    }
+}
@@ -0,0 +1,254 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tastefuljava.jsonia.handler.JSonFormatter;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import org.tastefuljava.jsonia.util.LazyNumber;
+import org.tastefuljava.jsonia.util.SymbolTable;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSonParserTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNumbers() throws IOException {
+        String[] numbers = {
+            "0", "-0", "7", "-2147483648", "2147483648",
+            "-9223372036854775808", "9223372036854775807", "9223372036854775808",
+            "123456789012345678901234567890", "0.5", "-1.50", "0.000123",
+            "1.50000000000000000000000", "3.14159265358979323846264338",
+            "1e5", "1.5E-3", "-2.5e+300", "9007199254740993e0",
+            "2.2250738585072011e-308", "4.9e-324", "1e400", "1e-400",
+            "1.00000000000000011102230246251565404236316680908203125e0"
+        };
+        StringBuilder buf = new StringBuilder("[");
+        Random random = new Random(1234);
+        List<String> all = new ArrayList<>(Arrays.asList(numbers));
+        for (int i = 0; i < 2000; ++i) {
+            all.add(Double.toString(Double.longBitsToDouble(
+                    random.nextLong() & 0x7FEFFFFFFFFFFFFFL))
+                    .replace("E", "e"));
+        }
+        for (String number: all) {
+            buf.append(buf.length() > 1 ? "," : "").append(number);
+        }
+        String json = buf.append("]").toString();
+        JSonGenericBuilder chars = new JSonGenericBuilder();
+        JSonParser.parse(json, chars);
+        JSonGenericBuilder bytes = new JSonGenericBuilder();
+        JSonParser.parse(json.getBytes(StandardCharsets.UTF_8), bytes);
+        assertEquals(chars.getTop(), bytes.getTop());
+        List<?> values = (List<?>)chars.getTop();
+        for (int i = 0; i < all.size(); ++i) {
+            String s = all.get(i);
+            Object value = values.get(i);
+            if (s.contains("e") || s.contains("E")) {
+                assertEquals(s, Double.valueOf(s), value);
+            } else if (s.contains(".")) {
+                assertEquals(s, new BigDecimal(s), value);
+            } else {
+                BigInteger bi = new BigInteger(s);
+                if (bi.bitLength() < 32) {
+                    assertEquals(s, bi.intValue(), value);
+                } else if (bi.bitLength() < 64) {
+                    assertEquals(s, bi.longValue(), value);
+                } else {
+                    assertEquals(s, bi, value);
+                }
+            }
+        }
+
+        JSonGenericBuilder lazy = new JSonGenericBuilder();
+        JSonParser parser = new JSonParser(json, lazy);
+        parser.setLazyNumbers(true);
+        parser.parse();
+        values = (List<?>)lazy.getTop();
+        for (int i = 0; i < all.size(); ++i) {
+            String s = all.get(i);
+            Object value = values.get(i);
+            if (value instanceof LazyNumber) {
+                LazyNumber number = (LazyNumber)value;
+                assertEquals(s, new BigDecimal(s), number.bigDecimalValue());
+                assertEquals(s, Double.parseDouble(s), number.doubleValue(), 0);
+            } else {
+                assertEquals(s, ((List<?>)chars.getTop()).get(i), value);
+            }
+        }
+        assertTrue(values.get(9) instanceof LazyNumber);
+        assertTrue(values.get(7) instanceof LazyNumber);
+        assertTrue(values.get(14) instanceof Double);
+    }
+
+    @Test
+    public void testCharHandler() throws IOException {
+        StringBuilder buf = new StringBuilder("{");
+        for (int i = 0; i < 500; ++i) {
+            buf.append(i > 0 ? "," : "").append("\"k\\\"").append(i)
+                    .append("\":{\"\\u00e9t\\u00e9\":[\"v").append(i)
+                    .append("\",{\"x\":\"\\n\"}],\"y\":").append(i)
+                    .append('}');
+        }
+        String json = buf.append('}').toString();
+        String expected = json.replace("\\u00e9", "\\u00E9");
+        StringWriter out = new StringWriter();
+        JSonParser.parse(json, new JSonFormatter(out, false));
+        assertEquals(expected, out.toString());
+        out = new StringWriter();
+        JSonParser.parse(json.getBytes(StandardCharsets.UTF_8),
+                new JSonFormatter(out, false));
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    public void testSymbols() throws IOException {
+        String json = "[{\"name\":\"a\",\"type\":\"leaf\"},"
+                + "{\"name\":\"b\",\"type\":\"leaf\"}]";
+        SymbolTable symbols = new SymbolTable();
+        List<Map<?,?>> results = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            JSonGenericBuilder builder = new JSonGenericBuilder();
+            JSonParser parser = new JSonParser(
+                    json.getBytes(StandardCharsets.UTF_8), builder);
+            parser.setSymbolTable(symbols);
+            parser.setCanonicalStrings(4);
+            parser.parse();
+            for (Object obj: (List<?>)builder.getTop()) {
+                results.add((Map<?,?>)obj);
+            }
+        }
+        String name = key(results.get(0), "name");
+        String leaf = (String)results.get(0).get("type");
+        for (Map<?,?> map: results) {
+            assertSame(name, key(map, "name"));
+            assertSame(leaf, map.get("type"));
+        }
+        assertSame(name, symbols.get("name".toCharArray(), 0, 4));
+    }
+
+    private static String key(Map<?,?> map, String name) {
+        for (Object key: map.keySet()) {
+            if (key.equals(name)) {
+                return (String)key;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testAsync() throws IOException {
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 200; ++i) {
+            buf.append(i > 0 ? "," : "").append("{\"id\":").append(i)
+                    .append(",\"name\":\"\u00e9l\u00e9ment \\\"")
+                    .append(i).append("\\\" \ud83d\ude00\",\"values\":[")
+                    .append(i / 7.0).append(",true,null,false,[],{}]}");
+        }
+        String json = buf.append(']').toString();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JSonGenericBuilder expected = new JSonGenericBuilder();
+        JSonParser.parse(json, expected);
+        for (int chunk: new int[] {1, 2, 7, 100, bytes.length}) {
+            JSonGenericBuilder builder = new JSonGenericBuilder();
+            JSonAsyncParser parser = new JSonAsyncParser(builder);
+            for (int i = 0; i < bytes.length; i += chunk) {
+                assertFalse(parser.isDone());
+                parser.feed(ByteBuffer.wrap(
+                        bytes, i, Math.min(chunk, bytes.length - i)));
+            }
+            assertTrue(parser.isDone());
+            parser.endOfInput();
+            assertEquals(expected.getTop(), builder.getTop());
+        }
+        // a top-level number is only complete at the end of the input
+        JSonGenericBuilder builder = new JSonGenericBuilder();
+        JSonAsyncParser parser = new JSonAsyncParser(builder);
+        parser.feed(ByteBuffer.wrap("12".getBytes(StandardCharsets.UTF_8)));
+        parser.feed(ByteBuffer.wrap("34".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(parser.isDone());
+        parser.endOfInput();
+        assertEquals(1234, builder.getTop());
+        // a long string, with escapes at the chunk boundaries
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            text.append(i % 97 == 0 ? "\\\"" : "x");
+        }
+        bytes = ("[\"" + text + "\", 123456789]")
+                .getBytes(StandardCharsets.UTF_8);
+        expected = new JSonGenericBuilder();
+        JSonParser.parse(bytes, expected);
+        for (int chunk: new int[] {96, 97, 98, 1000}) {
+            builder = new JSonGenericBuilder();
+            parser = new JSonAsyncParser(builder);
+            for (int i = 0; i < bytes.length; i += chunk) {
+                parser.feed(ByteBuffer.wrap(
+                        bytes, i, Math.min(chunk, bytes.length - i)));
+            }
+            assertTrue(parser.isDone());
+            assertEquals(expected.getTop(), builder.getTop());
+        }
+        parser = new JSonAsyncParser(new JSonGenericBuilder());
+        parser.feed(ByteBuffer.wrap("[1, ".getBytes(StandardCharsets.UTF_8)));
+        try {
+            parser.endOfInput();
+            fail("No error");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMappedWindows() throws IOException {
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 1000; ++i) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append("{\"id\":").append(i)
+                    .append(",\"name\":\"élément \\\"")
+                    .append(i).append("\\\" 😀\",\"value\":")
+                    .append(i / 7.0).append('}');
+        }
+        buf.append(']');
+        String json = buf.toString();
+        File file = folder.newFile("test.json");
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+        JSonGenericBuilder expected = new JSonGenericBuilder();
+        JSonParser.parse(json, expected);
+        JSonGenericBuilder mapped = new JSonGenericBuilder();
+        JSonParser.parse(file, mapped);
+        assertEquals(expected.getTop(), mapped.getTop());
+        // windows cutting through tokens, some of them shorter than a token
+        for (int windowSize: new int[] {7, 64, 4093, 10000}) {
+            JSonGenericBuilder builder = new JSonGenericBuilder();
+            try (FileChannel channel = FileChannel.open(
+                    file.toPath(), StandardOpenOption.READ)) {
+                new JSonParser(new BufferLexer(channel, windowSize), builder)
+                        .parse();
+            }
+            assertEquals(expected.getTop(), builder.getTop());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.tastefuljava.jsonia.producer.JSonReader.Token;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSonReaderTest {
+    private static final String JSON = "{\"id\": 12, \"skipped\": {\"a\": "
+            + "[1, 2.5, {\"b\": \"\\\"x\\\"\"}, [], {}], \"c\": null}, "
+            + "\"values\": [true, false, null, -1.5e3, 1.25, "
+            + "\"\\u00e9t\\u00e9\"], \"empty\": {}, \"last\": 9223372036854775807}";
+
+    @Test
+    public void testTokens() throws IOException {
+        for (JSonReader reader: readers(JSON)) {
+            List<Object> values = new ArrayList<>();
+            Token token;
+            while ((token = reader.nextToken()) != Token.END) {
+                switch (token) {
+                    case FIELD_NAME:
+                        if (reader.getString().equals("skipped")) {
+                            reader.skipValue();
+                            assertEquals(Token.END_OBJECT, reader.getToken());
+                            assertEquals(1, reader.getDepth());
+                        } else {
+                            values.add(reader.getString());
+                        }
+                        break;
+                    case STRING:
+                        values.add(reader.getString());
+                        break;
+                    case NUMBER:
+                        values.add(reader.getNumber());
+                        break;
+                    case BOOLEAN:
+                        values.add(reader.getBoolean());
+                        break;
+                    default:
+                        values.add(token);
+                        break;
+                }
+            }
+            assertEquals(Token.END, reader.nextToken());
+            assertEquals(0, reader.getDepth());
+            List<Object> expected = new ArrayList<>();
+            expected.add(Token.START_OBJECT);
+            expected.add("id");
+            expected.add(12);
+            expected.add("values");
+            expected.add(Token.START_ARRAY);
+            expected.add(true);
+            expected.add(false);
+            expected.add(Token.NULL);
+            expected.add(-1500.0);
+            expected.add(new BigDecimal("1.25"));
+            expected.add("été");
+            expected.add(Token.END_ARRAY);
+            expected.add("empty");
+            expected.add(Token.START_OBJECT);
+            expected.add(Token.END_OBJECT);
+            expected.add("last");
+            expected.add(Long.MAX_VALUE);
+            expected.add(Token.END_OBJECT);
+            assertEquals(expected, values);
+        }
+    }
+
+    @Test
+    public void testAccessors() throws IOException {
+        for (JSonReader reader: readers("[12, -1.5e3, 1.25, \"a\\nb\"]")) {
+            assertEquals(Token.START_ARRAY, reader.nextToken());
+            assertEquals(Token.NUMBER, reader.nextToken());
+            assertEquals(12L, reader.getLong());
+            assertEquals(12.0, reader.getDouble(), 0);
+            assertEquals("12", reader.getCharSequence().toString());
+            assertEquals(Token.NUMBER, reader.nextToken());
+            assertEquals(-1500L, reader.getLong());
+            assertEquals(Token.NUMBER, reader.nextToken());
+            assertEquals(1.25, reader.getDouble(), 0);
+            assertEquals(Token.STRING, reader.nextToken());
+            assertTrue("a\nb".contentEquals(reader.getCharSequence()));
+            try {
+                reader.getLong();
+                fail("getLong() on a string");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertEquals(Token.END_ARRAY, reader.nextToken());
+            assertEquals(Token.END, reader.nextToken());
+        }
+    }
+
+    @Test
+    public void testEarlyTermination() throws IOException {
+        StringBuilder buf = new StringBuilder("{\"first\": 1, \"rest\": [");
+        for (int i = 0; i < 10000; ++i) {
+            buf.append(i > 0 ? "," : "").append(i);
+        }
+        buf.append("]}");
+        try (JSonReader reader = new JSonReader(buf.toString())) {
+            assertEquals(Token.START_OBJECT, reader.nextToken());
+            assertEquals(Token.FIELD_NAME, reader.nextToken());
+            assertEquals("first", reader.getString());
+            assertEquals(Token.NUMBER, reader.nextToken());
+            assertEquals(1, reader.getInt());
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        String[] invalid = {
+            "", "[1 2]", "{\"a\" 1}", "{1: 2}", "[1,", "{\"a\":}"
+        };
+        for (String json: invalid) {
+            for (JSonReader reader: readers(json)) {
+                try {
+                    while (reader.nextToken() != Token.END) {
+                        // read all
+                    }
+                    fail("No error for " + json);
+                } catch (IOException e) {
+                    assertFalse(e.getMessage().isEmpty());
+                }
+            }
+        }
+    }
+
+    private static JSonReader[] readers(String json) {
+        return new JSonReader[] {
+            new JSonReader(json),
+            new JSonReader(json.getBytes(StandardCharsets.UTF_8))
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import org.tastefuljava.jsonia.Benchmark;
+import org.tastefuljava.jsonia.Orders;
+
+/**
+ * Measures the traversal of a graph of objects by a {@link JSonVisitor},
+ * with a handler that only counts the events, so that the time is mostly
+ * spent reading properties; see {@link Benchmark} to run it.
+ */
+public class JSonVisitorBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = Benchmark.count(args, 50000);
+        Orders.Order[] orders = new Orders.Order[count];
+        for (int i = 0; i < count; ++i) {
+            orders[i] = Orders.order(i);
+        }
+        Benchmark.Counter counter = new Benchmark.Counter();
+        long best = Benchmark.best(() -> {
+            counter.reset();
+            new JSonVisitor(counter).visit(orders);
+        });
+        System.out.format("%d orders, %d events%n", count,
+                counter.getEvents());
+        System.out.format("best of %d: %.1f ms, %.1f M events/s%n",
+                Benchmark.ROUNDS, best/1e6, counter.getEvents()/(best/1e3));
+    }
+}
@@ -0,0 +1,54 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.tastefuljava.jsonia.Benchmark;
+
+/**
+ * Compares a parse by the byte lexer, with a handler that only counts the
+ * events, to building a {@link StructuralIndex} of an array of records and
+ * skipping from one record to the next; see {@link Benchmark} to run it.
+ */
+public class StructuralIndexBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = Benchmark.count(args, 200000);
+        byte[] data = document(count);
+        System.out.format("%d records, %d bytes%n", count, data.length);
+        Benchmark.Counter counter = new Benchmark.Counter();
+        long lexer = Benchmark.best(() -> JSonParser.parse(data, counter));
+        long build = Benchmark.best(() -> StructuralIndex.build(data));
+        long skip = Benchmark.best(() -> {
+            if (records(StructuralIndex.build(data)) != count) {
+                throw new IllegalStateException("Wrong index");
+            }
+        });
+        System.out.format("best of %d:%n", Benchmark.ROUNDS);
+        Benchmark.report("lexer parse", lexer, data.length);
+        Benchmark.report("index build", build, data.length);
+        Benchmark.report("build + skip", skip, data.length);
+    }
+
+    private static int records(StructuralIndex index) {
+        int count = 0;
+        for (int i = 1; i < index.size() - 1; i = index.skip(i) + 1) {
+            ++count;
+        }
+        return count;
+    }
+
+    private static byte[] document(int count) {
+        StringBuilder buf = new StringBuilder("[\n");
+        for (int i = 0; i < count; ++i) {
+            if (i > 0) {
+                buf.append(",\n");
+            }
+            buf.append("  {\"id\": ").append(i)
+                    .append(", \"name\": \"record \\\"").append(i)
+                    .append("\\\"\", \"city\": \"Zürich\"")
+                    .append(", \"active\": ").append(i % 3 == 0)
+                    .append(", \"score\": ").append(i / 7.0)
+                    .append(", \"tags\": [\"a\", \"b\", null]}");
+        }
+        return buf.append("\n]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
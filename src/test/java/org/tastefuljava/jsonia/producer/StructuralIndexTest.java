@@ -0,0 +1,117 @@
+package org.tastefuljava.jsonia.producer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class StructuralIndexTest {
+    @Test
+    public void testOffsets() throws IOException {
+        Random random = new Random(42);
+        String[] pieces = {
+            "\\\\", "\\\"", "\\\\\\\"", "é", "😀", " ", "{}[]:,",
+            "\\n", "x", "\\u00e9"
+        };
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 500; ++i) {
+            StringBuilder str = new StringBuilder();
+            for (int j = random.nextInt(20); j > 0; --j) {
+                str.append(pieces[random.nextInt(pieces.length)]);
+            }
+            buf.append(i > 0 ? ",\n " : "").append("{\"s\" :\"").append(str)
+                    .append("\",\t\"n\":").append(random.nextInt() / 100.0)
+                    .append(",\"k\":[true,false,null,-").append(i)
+                    .append(",{}],\"").append(str).append("\":[]}");
+        }
+        byte[] bytes = buf.append("]").toString()
+                .getBytes(StandardCharsets.UTF_8);
+        // every token starts at a structural character
+        List<Integer> expected = new ArrayList<>();
+        JSonLexer lexer = new Utf8Lexer(bytes, 0, bytes.length);
+        while (lexer.nextsy() != JSonLexer.Symbol.EOF) {
+            expected.add((int)lexer.position());
+        }
+        // shift the data to move the escapes across block boundaries
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte[] data = new byte[bytes.length + shift];
+            System.arraycopy(bytes, 0, data, shift, bytes.length);
+            StructuralIndex index
+                    = StructuralIndex.build(data, shift, bytes.length);
+            assertEquals(expected.size(), index.size());
+            for (int i = 0; i < index.size(); ++i) {
+                assertEquals(expected.get(i) + shift, index.offset(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        String json = "[1, {\"a\": [2, \"]\"]}, \"x\\\"]\", [[], {}], true]";
+        StructuralIndex index = StructuralIndex.build(
+                json.getBytes(StandardCharsets.UTF_8));
+        List<?> expected = (List<?>)parse(json);
+        int count = 0;
+        int i = 1;
+        while (i < index.size() - 1) {
+            int next = index.skip(i);
+            String element = json.substring(
+                    index.offset(i), index.offset(next));
+            assertEquals(expected.get(count++), parse(element));
+            i = next + 1;
+        }
+        assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        String json = "[\"a\\\\\", \"\\\"]\\\\\\\"{\", 123, {\"b\": [null]}]";
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 100; ++i) {
+            buf.append(i > 0 ? ", " : "").append(json);
+        }
+        byte[] data = buf.append("]").toString()
+                .getBytes(StandardCharsets.UTF_8);
+        StructuralIndex expected = StructuralIndex.build(data);
+        for (int chunkSize = 64; chunkSize <= 256; chunkSize += 64) {
+            StructuralIndex index = null;
+            int count = 0;
+            for (int start = 0; start < data.length; start += chunkSize) {
+                int length = Math.min(chunkSize, data.length - start);
+                index = StructuralIndex.buildChunk(
+                        data, start, length, index);
+                for (int i = 0; i < index.size(); ++i) {
+                    // a scalar that straddles two chunks is not split
+                    assertEquals(expected.offset(count++), index.offset(i));
+                }
+            }
+            assertEquals(expected.size(), count);
+        }
+    }
+
+    @Test
+    public void testUnclosedString() {
+        String[] invalid = {
+            "\"abc", "[\"a\\\"]", "{\"a\": \"b\\\\\\\"}"
+        };
+        for (String json: invalid) {
+            try {
+                StructuralIndex.build(json.getBytes(StandardCharsets.UTF_8));
+                fail("No error for " + json);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static Object parse(String json) throws IOException {
+        JSonGenericBuilder builder = new JSonGenericBuilder();
+        JSonParser.parse(json, builder);
+        return builder.getTop();
+    }
+}
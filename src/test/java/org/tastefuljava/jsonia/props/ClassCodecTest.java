@@ -0,0 +1,185 @@
+package org.tastefuljava.jsonia.props;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import org.tastefuljava.jsonia.JSonCodec;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassCodecTest {
+    @Test
+    public void testRoundTrip() throws IOException {
+        Fields fields = new Fields();
+        fields.i = -3;
+        fields.l = Long.MIN_VALUE;
+        fields.d = 1.5;
+        fields.f = 2.25f;
+        fields.s = 7;
+        fields.b = -8;
+        fields.flag = true;
+        fields.name = "fields";
+        fields.values = new int[] {1, 2, 3};
+        fields.hidden = 9;
+        fields.nested = new Accessed();
+        fields.nested.setCount(4);
+        fields.nested.setName("nested");
+        fields.nested.setRatio(0.25);
+        String expected = JSon.stringify(fields, false);
+        assertTrue(ClassDef.generateCodecs(Fields.class, Accessed.class));
+        assertNotNull(ClassDef.forClass(Fields.class).getCodec());
+        assertEquals(expected, JSon.stringify(fields, false));
+        Fields copy = JSon.read(expected, Fields.class);
+        assertEquals(-3, copy.i);
+        assertEquals(Long.MIN_VALUE, copy.l);
+        assertEquals(1.5, copy.d, 0);
+        assertEquals(2.25f, copy.f, 0);
+        assertEquals(7, copy.s);
+        assertEquals(-8, copy.b);
+        assertTrue(copy.flag);
+        assertEquals("fields", copy.name);
+        assertArrayEquals(new int[] {1, 2, 3}, copy.values);
+        assertEquals(9, copy.hidden);
+        assertEquals(4, copy.nested.getCount());
+        assertEquals("nested", copy.nested.getName());
+        assertEquals(0.25, copy.nested.getRatio(), 0);
+        assertNull(copy.nothing);
+        assertEquals(expected, JSon.stringify(copy, false));
+    }
+
+    @Test
+    public void testCodec() {
+        ClassDef<Accessed> def = ClassDef.forClass(Accessed.class);
+        assertTrue(ClassDef.generateCodecs(Accessed.class));
+        ClassCodec codec = def.getCodec();
+        Accessed bean = (Accessed)codec.newInstance();
+        assertNotNull(bean);
+        assertEquals(-1, codec.indexOf("unknown"));
+        int count = codec.indexOf("count");
+        assertEquals("count", codec.getProperty(count).getName());
+        codec.setLong(bean, count, 12);
+        assertEquals(12, bean.getCount());
+        try {
+            codec.set(bean, count, null);
+            fail("No error");
+        } catch (IllegalArgumentException e) {
+            // as with reflection
+        }
+        assertEquals(12, bean.getCount());
+        codec.set(bean, codec.indexOf("ratio"), 0.5);
+        assertEquals(0.5, bean.getRatio(), 0);
+        try {
+            codec.set(bean, codec.indexOf("failing"), "x");
+            fail("No error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testHidden() throws IOException {
+        String json = "{\"count\":5,\"name\":\"hidden\"}";
+        assertTrue(ClassDef.generateCodecs(Hidden.class));
+        ClassCodec codec = ClassDef.forClass(Hidden.class).getCodec();
+        assertNull(codec.newInstance());
+        Hidden hidden = new Hidden();
+        codec.setLong(hidden, codec.indexOf("count"), 5);
+        codec.set(hidden, codec.indexOf("name"), "hidden");
+        assertEquals(5, hidden.count);
+        assertEquals("hidden", hidden.name);
+        assertEquals(json, JSon.stringify(hidden, false));
+    }
+
+    @Test
+    public void testCompiled() throws IOException {
+        ClassCodec codec = ClassCodec.forClass(Compiled.class);
+        assertTrue(codec instanceof ClassCodecTest_Compiled_JSonCodec);
+        PropertyDef id = codec.getProperty(codec.indexOf("id"));
+        assertEquals(PropertyDef.Kind.LONG, id.getKind());
+        Compiled compiled = JSon.read("{\"id\":42,\"other\":1}",
+                Compiled.class);
+        assertEquals(42, compiled.id);
+        assertEquals(42L, id.get(compiled));
+        id.set(compiled, 7L);
+        assertEquals("{\"id\":7}", JSon.stringify(compiled, false));
+    }
+
+    @Test
+    public void testBroken() throws IOException {
+        // logged, and replaced by reflection
+        assertNull(ClassCodec.forClass(Broken.class));
+        assertEquals(3, JSon.read("{\"id\":3}", Broken.class).id);
+    }
+
+    public static class Fields {
+        public int i;
+        public long l;
+        public double d;
+        public float f;
+        public short s;
+        public byte b;
+        public boolean flag;
+        public String name;
+        public int[] values;
+        public Accessed nested;
+        public String nothing;
+        private int hidden;
+    }
+
+    public static class Accessed {
+        private int count;
+        private String name;
+        private double ratio;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Accessed setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public void setFailing(String value) throws Exception {
+            throw new Exception("failed");
+        }
+    }
+
+    @JSonCodec
+    public static class Compiled {
+        long id;
+    }
+
+    @JSonCodec
+    public static class Broken {
+        long id;
+    }
+
+    /**
+     * Not public: all its properties are accessed through their PropertyDef.
+     */
+    static class Hidden {
+        private int count;
+        private String name;
+    }
+}
@@ -0,0 +1,29 @@
+package org.tastefuljava.jsonia.props;
+
+import java.util.function.Consumer;
+import org.tastefuljava.jsonia.JSonHandler;
+
+/**
+ * A codec that cannot be initialized.
+ */
+public final class ClassCodecTest_Broken_JSonCodec extends ClassCodec {
+    private static final int BROKEN = Integer.parseInt("broken");
+
+    public ClassCodecTest_Broken_JSonCodec() {
+        super(new PropertyDef[0]);
+    }
+
+    @Override
+    public void write(Object object, JSonHandler handler,
+            Consumer<Object> visitor) {
+    }
+
+    @Override
+    public int indexOf(String name) {
+        return -1;
+    }
+
+    @Override
+    public void set(Object object, int index, Object value) {
+    }
+}
@@ -0,0 +1,52 @@
+package org.tastefuljava.jsonia.props;
+
+import java.util.function.Consumer;
+import org.tastefuljava.jsonia.JSonHandler;
+import org.tastefuljava.jsonia.props.ClassCodecTest.Compiled;
+
+/**
+ * A minimal stub with the name of a codec generated at compile time, to
+ * test how ClassCodec finds it; it is not the output of the annotation
+ * processor, whose codecs are tested in the processor module.
+ */
+public final class ClassCodecTest_Compiled_JSonCodec extends ClassCodec {
+    public ClassCodecTest_Compiled_JSonCodec() {
+        super(new PropertyDef[] {
+            property("id", long.class, true, true)
+        });
+    }
+
+    @Override
+    public Object newInstance() {
+        return new Compiled();
+    }
+
+    @Override
+    public void write(Object object, JSonHandler handler,
+            Consumer<Object> visitor) {
+        Compiled bean = (Compiled)object;
+        handler.startField("id");
+        handler.handleLong(bean.id);
+        handler.endField("id");
+    }
+
+    @Override
+    public int indexOf(String name) {
+        return name.equals("id") ? 0 : -1;
+    }
+
+    @Override
+    public Object get(Object object, int index) {
+        return ((Compiled)object).id;
+    }
+
+    @Override
+    public void set(Object object, int index, Object value) {
+        ((Compiled)object).id = (Long)value;
+    }
+
+    @Override
+    public void setLong(Object object, int index, long value) {
+        ((Compiled)object).id = value;
+    }
+}
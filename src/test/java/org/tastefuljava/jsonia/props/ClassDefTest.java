@@ -0,0 +1,219 @@
+package org.tastefuljava.jsonia.props;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassDefTest {
+    @Test
+    public void testConcurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<ClassDef<?>>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                tasks.add(() -> ClassDef.forClass(Concurrent.class));
+            }
+            ClassDef<?> def = ClassDef.forClass(Concurrent.class);
+            for (Future<ClassDef<?>> future: executor.invokeAll(tasks)) {
+                assertSame(def, future.get());
+            }
+            assertEquals(2, def.getProperties().length);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPreload() {
+        ClassDef.preload(Order.class);
+        ClassDef<Order> def = ClassDef.forClass(Order.class);
+        assertSame(def, ClassDef.forClass(Order.class));
+        assertEquals(Line[].class, def.getProperty("lines").getType());
+        assertEquals("quantity",
+                ClassDef.forClass(Line.class).getProperties()[0].getName());
+    }
+
+    @Test
+    public void testAccessors() {
+        for (Class<?> clazz: new Class<?>[] {Bean.class, HiddenBean.class}) {
+            ClassDef<?> def = ClassDef.forClass(clazz);
+            Object bean = def.newInstance();
+            PropertyDef count = def.getProperty("count");
+            PropertyDef name = def.getProperty("name");
+            assertEquals(int.class, count.getType());
+            count.set(bean, 42);
+            name.set(bean, "x");
+            assertEquals(42, count.get(bean));
+            assertEquals("x", name.get(bean));
+            try {
+                def.getProperty("failing").set(bean, "x");
+                fail("No error");
+            } catch (IllegalArgumentException e) {
+                assertEquals("failed", e.getMessage());
+            }
+            try {
+                count.set(bean, "x");
+                fail("No error");
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+        ClassDef<Constant> def = ClassDef.forClass(Constant.class);
+        Constant constant = new Constant();
+        def.getProperty("value").set(constant, 3L);
+        assertEquals(3L, def.getProperty("value").get(constant));
+    }
+
+    @Test
+    public void testPrimitiveAccessors() {
+        ClassDef<Primitives> def = ClassDef.forClass(Primitives.class);
+        Primitives p = new Primitives();
+        PropertyDef flag = def.getProperty("flag");
+        PropertyDef i = def.getProperty("i");
+        PropertyDef l = def.getProperty("l");
+        PropertyDef d = def.getProperty("d");
+        assertEquals(PropertyDef.Kind.BOOLEAN, flag.getKind());
+        assertEquals(PropertyDef.Kind.INT, i.getKind());
+        assertEquals(PropertyDef.Kind.LONG, l.getKind());
+        assertEquals(PropertyDef.Kind.DOUBLE, d.getKind());
+        assertEquals(PropertyDef.Kind.OBJECT,
+                def.getProperty("f").getKind());
+        flag.setBoolean(p, true);
+        i.setInt(p, -7);
+        l.setLong(p, Long.MAX_VALUE);
+        d.setDouble(p, 0.5);
+        assertTrue(flag.getBoolean(p));
+        assertEquals(-7, i.getInt(p));
+        assertEquals(-7L, i.getLong(p));
+        assertEquals(Long.MAX_VALUE, l.getLong(p));
+        assertEquals(0.5, d.getDouble(p), 0);
+        assertEquals(Long.MAX_VALUE, l.get(p));
+        PropertyDef constant = def.getProperty("constant");
+        constant.setInt(p, 3);
+        assertEquals(3, constant.getInt(p));
+        for (Class<?> clazz: new Class<?>[] {Bean.class, HiddenBean.class}) {
+            Bean bean = (Bean)ClassDef.forClass(clazz).newInstance();
+            PropertyDef count = ClassDef.forClass(clazz).getProperty("count");
+            count.setInt(bean, 12);
+            assertEquals(12, bean.getCount());
+            assertEquals(12, count.getInt(bean));
+            assertEquals(12.0, count.getDouble(bean), 0);
+        }
+    }
+
+    @Test
+    public void testIsGetter() throws IOException {
+        ClassDef<Flags> def = ClassDef.forClass(Flags.class);
+        assertEquals(PropertyDef.Kind.BOOLEAN,
+                def.getProperty("active").getKind());
+        assertTrue(def.getProperty("active").canGet());
+        Flags flags = new Flags();
+        flags.setActive(true);
+        assertEquals("{\"active\":true}", JSon.stringify(flags, false));
+        assertTrue(JSon.read("{\"active\":true}", Flags.class).isActive());
+        try {
+            def.getProperty("active").set(flags, null);
+            fail("No error");
+        } catch (IllegalArgumentException e) {
+            // as with reflection
+        }
+        assertTrue(flags.isActive());
+    }
+
+    public static class Concurrent {
+        private int a;
+        private String b;
+    }
+
+    public static class Order {
+        private String customer;
+        private Line[] lines;
+    }
+
+    public static class Line {
+        private int quantity;
+        private Product product;
+    }
+
+    public static class Product {
+        private String name;
+    }
+
+    public static class Bean {
+        private int count;
+        private String name;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Bean setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public void setFailing(String value) throws Exception {
+            throw new Exception("failed");
+        }
+    }
+
+    /**
+     * Not public: the methods it declares are called through reflection.
+     */
+    static class HiddenBean extends Bean {
+        private int hiddenCount;
+
+        @Override
+        public int getCount() {
+            return hiddenCount;
+        }
+
+        @Override
+        public void setCount(int count) {
+            hiddenCount = count;
+        }
+    }
+
+    public static class Primitives {
+        private boolean flag;
+        private int i;
+        private long l;
+        private double d;
+        private float f;
+        private final int constant = Integer.parseInt("0");
+    }
+
+    public static class Flags {
+        private boolean active;
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+
+    public static class Constant {
+        private final long value = 0;
+    }
+}
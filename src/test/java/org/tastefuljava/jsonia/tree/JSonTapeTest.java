@@ -0,0 +1,132 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import org.tastefuljava.jsonia.handler.JSonBuilder;
+import org.tastefuljava.jsonia.handler.JSonFormatter;
+import org.tastefuljava.jsonia.handler.JSonGenericBuilder;
+import org.tastefuljava.jsonia.handler.JSonTapeBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSonTapeTest {
+    private static final String JSON = "{\"name\":\"café \\\"😀\\\"\","
+            + "\"values\":[1,-9223372036854775808,2.5,1.5E10,"
+            + "123456789012345678901234567890,true,false,null,[],{}],"
+            + "\"child\":{\"name\":\"child\",\"values\":[]}}";
+
+    @Test
+    public void testNavigate() throws IOException {
+        JSonTapeBuilder builder = new JSonTapeBuilder();
+        JSon.parse(JSON, builder);
+        JSonTape tape = (JSonTape)builder.getTop();
+        assertEquals(JSonTape.Type.OBJECT, tape.getType(0));
+        assertEquals(3, tape.size(0));
+        assertEquals("café \"😀\"",
+                tape.getString(tape.field(0, "name")));
+        assertEquals(-1, tape.field(0, "missing"));
+        int values = tape.field(0, "values");
+        assertEquals(10, tape.size(values));
+        assertEquals(1, tape.getNumber(tape.element(values, 0)));
+        assertEquals(Long.MIN_VALUE, tape.getLong(tape.element(values, 1)));
+        assertEquals(new BigDecimal("2.5"),
+                tape.getNumber(tape.element(values, 2)));
+        assertEquals(2.5, tape.getDouble(tape.element(values, 2)), 0);
+        assertEquals(1.5e10, tape.getNumber(tape.element(values, 3)));
+        assertTrue(tape.getBoolean(tape.element(values, 5)));
+        assertFalse(tape.getBoolean(tape.element(values, 6)));
+        assertEquals(JSonTape.Type.NULL,
+                tape.getType(tape.element(values, 7)));
+        int count = 0;
+        for (int i = tape.first(values); i >= 0; i = tape.next(i)) {
+            ++count;
+        }
+        assertEquals(10, count);
+        assertEquals(-1, tape.first(tape.element(values, 8)));
+        StringBuilder names = new StringBuilder();
+        for (int i = tape.first(0); i >= 0; i = tape.next(i)) {
+            names.append(tape.getName(i)).append(' ');
+        }
+        assertEquals("name values child ", names.toString());
+        int child = tape.field(0, "child");
+        assertEquals("child", tape.getString(tape.field(child, "name")));
+        try {
+            tape.getString(values);
+            fail("No error");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        JSonTapeBuilder builder = new JSonTapeBuilder();
+        JSon.parse(JSON, builder);
+        JSonTape tape = (JSonTape)builder.getTop();
+
+        StringWriter out = new StringWriter();
+        tape.replay(new JSonFormatter(out, false));
+        StringWriter expected = new StringWriter();
+        JSon.parse(JSON, new JSonFormatter(expected, false));
+        assertEquals(expected.toString(), out.toString());
+
+        JSonGenericBuilder generic = new JSonGenericBuilder();
+        tape.replay(generic);
+        assertEquals(JSon.read(JSON), generic.getTop());
+
+        JSonBuilder typed = new JSonBuilder(Node.class);
+        tape.replay(typed);
+        Node node = (Node)typed.getTop();
+        assertEquals("child", node.child.name);
+        assertEquals(0, node.child.values.length);
+    }
+
+    @Test
+    public void testLoneSurrogates() throws IOException {
+        // lone surrogates can only be written as escapes
+        String json = "{\"a\":\"\\ud83d\","
+                + "\"\\udc00\":\"x\\udc00\\ud83d\\ude00\"}";
+        JSonTapeBuilder builder = new JSonTapeBuilder();
+        JSon.parse(json, builder);
+        JSonTape tape = (JSonTape)builder.getTop();
+        assertEquals("\ud83d", tape.getString(tape.field(0, "a")));
+        assertEquals("x\udc00\ud83d\ude00",
+                tape.getString(tape.field(0, "\udc00")));
+        JSonGenericBuilder generic = new JSonGenericBuilder();
+        tape.replay(generic);
+        assertEquals(JSon.read(json), generic.getTop());
+    }
+
+    @Test
+    public void testFixedBuffers() throws IOException {
+        ByteBuffer tapeBuffer = ByteBuffer.allocateDirect(256);
+        ByteBuffer pool = ByteBuffer.allocateDirect(128);
+        JSonTapeBuilder builder = new JSonTapeBuilder(tapeBuffer, pool);
+        JSon.parse("[\"abc\",{\"x\":1,\"y\":2},{\"x\":3}]", builder);
+        JSonTape tape = (JSonTape)builder.getTop();
+        // the name x is stored once
+        assertEquals(3 + 4 + 1 + 4 + 1 + 4, tape.getPoolSize());
+        assertEquals(3, tape.getNumber(tape.field(tape.element(0, 2), "x")));
+        builder.reset();
+        try {
+            JSon.parse("[" + new String(new char[300]).replace('\0', '1')
+                    + "]", builder);
+            fail("No overflow");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    public static class Node {
+        private String name;
+        private Object[] values;
+        private Node child;
+    }
+}
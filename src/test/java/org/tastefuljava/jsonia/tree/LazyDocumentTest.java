@@ -0,0 +1,73 @@
+package org.tastefuljava.jsonia.tree;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.tastefuljava.jsonia.JSon;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyDocumentTest {
+    private static final String JSON = "{\"name\":\"caf\\u00e9 \\\"☺\\\"\","
+            + " \"list\" : [1, -2.50, 3e2, true, null, [], {}, [[\"x\"]]],"
+            + "\"nested\":{\"a\":{\"b\":{\"c\":12345678901234567890}}},"
+            + "\"dup\":1,\"dup\":2,\"empty\":\"\"}";
+
+    @Test
+    public void testSameAsGeneric() throws IOException {
+        Object lazy = JSon.readLazy(JSON);
+        assertTrue(lazy instanceof LazyObject);
+        assertEquals(JSon.read(JSON), lazy);
+        for (String json: new String[] {"12", "\"abc\"", "null", "[]",
+                "[1,{\"a\":[]},\"b\"]", " { } "}) {
+            assertEquals(JSon.read(json), JSon.readLazy(json));
+        }
+    }
+
+    @Test
+    public void testAccess() throws IOException {
+        Map<?,?> doc = (Map<?,?>)JSon.readLazy(JSON);
+        assertEquals(5, doc.size());
+        assertEquals("café \"☺\"", doc.get("name"));
+        assertEquals(2, doc.get("dup"));
+        assertNull(doc.get("missing"));
+        assertFalse(doc.containsKey("missing"));
+        List<?> list = (List<?>)doc.get("list");
+        assertSame(list, doc.get("list"));
+        assertEquals(8, list.size());
+        assertEquals(new BigDecimal("-2.50"), list.get(1));
+        assertEquals(300.0, list.get(2));
+        assertSame(list.get(7), list.get(7));
+        assertEquals(Arrays.asList(Arrays.asList("x")), list.get(7));
+        Map<?,?> c = (Map<?,?>)((Map<?,?>)((Map<?,?>)doc.get("nested"))
+                .get("a")).get("b");
+        assertEquals(1, c.size());
+        try {
+            list.get(8);
+            fail("No error");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String json: new String[] {"", "{", "[1,]", "{\"a\" 1}",
+                "[1] 2", "\"abc", "tru", "[truex]", "[1a]", "{} {}", "[@]",
+                "[1] @", "[\"a\"b]", "[1\u00002]"}) {
+            try {
+                JSon.readLazy(json);
+                fail("No error: " + json);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+}